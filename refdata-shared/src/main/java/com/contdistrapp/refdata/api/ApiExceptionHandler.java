@@ -2,9 +2,13 @@ package com.contdistrapp.refdata.api;
 
 import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
 import com.contdistrapp.refdata.error.BadRequestException;
+import com.contdistrapp.refdata.error.CursorExpiredException;
+import com.contdistrapp.refdata.error.FallbackOverloadedException;
 import com.contdistrapp.refdata.error.ForbiddenException;
 import com.contdistrapp.refdata.error.NotFoundException;
 import com.contdistrapp.refdata.error.VersionNotCommittedException;
+import com.contdistrapp.refdata.error.VersionNotRetainedException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -46,6 +50,34 @@ public class ApiExceptionHandler {
         return ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    @ExceptionHandler(VersionNotRetainedException.class)
+    public ResponseEntity<Map<String, Object>> versionNotRetained(VersionNotRetainedException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", Instant.now().toString());
+        body.put("code", "VERSION_NOT_RETAINED");
+        body.put("message", ex.getMessage());
+        body.put("requestedVersion", ex.getRequestedVersion());
+        body.put("oldestRetainedVersion", ex.getOldestRetainedVersion());
+        body.put("currentVersion", ex.getCurrentVersion());
+        return ResponseEntity.status(HttpStatus.GONE).body(body);
+    }
+
+    @ExceptionHandler(FallbackOverloadedException.class)
+    public ResponseEntity<Map<String, Object>> fallbackOverloaded(FallbackOverloadedException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", Instant.now().toString());
+        body.put("code", "FALLBACK_OVERLOADED");
+        body.put("message", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(body);
+    }
+
+    @ExceptionHandler(CursorExpiredException.class)
+    public ResponseEntity<Map<String, Object>> cursorExpired(CursorExpiredException ex) {
+        return error(HttpStatus.GONE, "CURSOR_EXPIRED", ex.getMessage());
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<Map<String, Object>> validation(MethodArgumentNotValidException ex) {
         StringBuilder details = new StringBuilder();
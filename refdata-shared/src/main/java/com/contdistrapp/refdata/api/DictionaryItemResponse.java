@@ -1,6 +0,0 @@
-package com.contdistrapp.refdata.api;
-
-import com.fasterxml.jackson.databind.JsonNode;
-
-public record DictionaryItemResponse(String key, JsonNode payload) {
-}
@@ -1,11 +1,19 @@
 package com.contdistrapp.refdata.api;
 
+import com.contdistrapp.refdata.config.RefDataProperties;
 import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
 import com.contdistrapp.refdata.domain.DataSourceType;
+import com.contdistrapp.refdata.domain.KeyType;
+import com.contdistrapp.refdata.error.BadRequestException;
+import com.contdistrapp.refdata.error.NotFoundException;
+import com.contdistrapp.refdata.service.DictionaryRegistry;
 import com.contdistrapp.refdata.service.QueryReadResult;
 import com.contdistrapp.refdata.service.QueryService;
+import com.contdistrapp.refdata.service.SnapshotEncoder;
 import com.contdistrapp.refdata.service.TenantAccessService;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,9 +21,15 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/v1/tenants/{tenantId}/dictionaries/{dictCode}")
@@ -23,58 +37,291 @@ import java.util.List;
 public class QueryController {
 
     private static final String HEADER_MIN_VERSION = "X-Min-Version";
+    private static final String HEADER_EXACT_VERSION = "X-Exact-Version";
+    // X-Exact-Version takes precedence when a request carries both headers.
+    private static final String MIN_VERSION_ONLY = "!" + HEADER_EXACT_VERSION;
     private static final String HEADER_DICT_VERSION = "X-Dict-Version";
     private static final String HEADER_DATA_SOURCE = "X-Data-Source";
 
     private final TenantAccessService tenantAccessService;
     private final QueryService queryService;
+    private final SnapshotEncoder snapshotEncoder;
+    private final DictionaryRegistry dictionaryRegistry;
+    private final int maxPageSize;
 
-    public QueryController(TenantAccessService tenantAccessService, QueryService queryService) {
+    public QueryController(
+            TenantAccessService tenantAccessService,
+            QueryService queryService,
+            SnapshotEncoder snapshotEncoder,
+            DictionaryRegistry dictionaryRegistry,
+            RefDataProperties properties) {
         this.tenantAccessService = tenantAccessService;
         this.queryService = queryService;
+        this.snapshotEncoder = snapshotEncoder;
+        this.dictionaryRegistry = dictionaryRegistry;
+        this.maxPageSize = properties.getQuery().getMaxPageSize();
     }
 
     @GetMapping("/items/{key}")
-    public ResponseEntity<DictionaryItemResponse> item(
+    public ResponseEntity<byte[]> item(
             @PathVariable String tenantId,
             @PathVariable String dictCode,
             @PathVariable String key,
-            @RequestHeader(value = HEADER_MIN_VERSION, required = false) Long minVersion,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        String itemKey = itemKey(dictCode, key);
+        return itemResponse(queryService.readItem(tenantId, dictCode, itemKey), itemKey, ifNoneMatch);
+    }
+
+    @GetMapping(value = "/items/{key}", headers = {HEADER_MIN_VERSION, MIN_VERSION_ONLY})
+    public CompletableFuture<ResponseEntity<byte[]>> itemAtVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @PathVariable String key,
+            @RequestHeader(HEADER_MIN_VERSION) long minVersion,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
     ) {
         tenantAccessService.assertAllowed(tenantId, authTenant);
-        QueryReadResult result = queryService.readItem(tenantId, dictCode, key, minVersion);
-        DictionaryItemResponse body = new DictionaryItemResponse(key, result.items().get(key));
-        return withHeaders(result).body(body);
+        String itemKey = itemKey(dictCode, key);
+        return queryService.readItem(tenantId, dictCode, itemKey, minVersion)
+                .thenApply(result -> itemResponse(result, itemKey, ifNoneMatch));
+    }
+
+    @GetMapping(value = "/items/{key}", headers = HEADER_EXACT_VERSION)
+    public CompletableFuture<ResponseEntity<byte[]>> itemAtExactVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @PathVariable String key,
+            @RequestHeader(HEADER_EXACT_VERSION) long exactVersion,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        String itemKey = itemKey(dictCode, key);
+        return queryService.readItemExact(tenantId, dictCode, itemKey, exactVersion)
+                .thenApply(result -> itemResponse(result, itemKey, ifNoneMatch));
     }
 
     @GetMapping("/items")
-    public ResponseEntity<DictionaryItemsResponse> items(
+    public ResponseEntity<byte[]> items(
             @PathVariable String tenantId,
             @PathVariable String dictCode,
             @RequestParam String keys,
-            @RequestHeader(value = HEADER_MIN_VERSION, required = false) Long minVersion,
             @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
     ) {
         tenantAccessService.assertAllowed(tenantId, authTenant);
-        List<String> parsedKeys = Arrays.stream(keys.split(","))
-                .map(String::trim)
-                .filter(v -> !v.isBlank())
-                .toList();
-        QueryReadResult result = queryService.readItems(tenantId, dictCode, parsedKeys, minVersion);
-        return withHeaders(result).body(new DictionaryItemsResponse(result.items()));
+        return itemsResponse(queryService.readItems(tenantId, dictCode, parseKeys(dictCode, keys)));
+    }
+
+    @GetMapping(value = "/items", headers = {HEADER_MIN_VERSION, MIN_VERSION_ONLY})
+    public CompletableFuture<ResponseEntity<byte[]>> itemsAtVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam String keys,
+            @RequestHeader(HEADER_MIN_VERSION) long minVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return queryService.readItems(tenantId, dictCode, parseKeys(dictCode, keys), minVersion)
+                .thenApply(this::itemsResponse);
+    }
+
+    @GetMapping(value = "/items", headers = HEADER_EXACT_VERSION)
+    public CompletableFuture<ResponseEntity<byte[]>> itemsAtExactVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam String keys,
+            @RequestHeader(HEADER_EXACT_VERSION) long exactVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return queryService.readItemsExact(tenantId, dictCode, parseKeys(dictCode, keys), exactVersion)
+                .thenApply(this::itemsResponse);
+    }
+
+    /**
+     * {@code where=<index>:<value>} selects the items whose value of a declared dictionary index equals the value;
+     * the value is split off at the first colon.
+     */
+    @GetMapping(value = "/items", params = "where")
+    public ResponseEntity<byte[]> itemsWhere(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam String where,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        WhereCondition condition = WhereCondition.parse(where);
+        return itemsResponse(queryService.readWhere(tenantId, dictCode, condition.index(), condition.value()));
+    }
+
+    @GetMapping(value = "/items", params = "where", headers = {HEADER_MIN_VERSION, MIN_VERSION_ONLY})
+    public CompletableFuture<ResponseEntity<byte[]>> itemsWhereAtVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam String where,
+            @RequestHeader(HEADER_MIN_VERSION) long minVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        WhereCondition condition = WhereCondition.parse(where);
+        return queryService.readWhere(tenantId, dictCode, condition.index(), condition.value(), minVersion)
+                .thenApply(this::itemsResponse);
+    }
+
+    @GetMapping(value = "/items", params = "where", headers = HEADER_EXACT_VERSION)
+    public CompletableFuture<ResponseEntity<byte[]>> itemsWhereAtExactVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam String where,
+            @RequestHeader(HEADER_EXACT_VERSION) long exactVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        WhereCondition condition = WhereCondition.parse(where);
+        return queryService.readWhereExact(tenantId, dictCode, condition.index(), condition.value(), exactVersion)
+                .thenApply(this::itemsResponse);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<DictionaryItemsResponse> all(
+    public ResponseEntity<byte[]> all(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return allResponse(tenantId, dictCode, queryService.readAll(tenantId, dictCode), acceptEncoding, ifNoneMatch);
+    }
+
+    @GetMapping(value = "/all", headers = {HEADER_MIN_VERSION, MIN_VERSION_ONLY})
+    public CompletableFuture<ResponseEntity<byte[]>> allAtVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestHeader(HEADER_MIN_VERSION) long minVersion,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return queryService.readAll(tenantId, dictCode, minVersion)
+                .thenApply(result -> allResponse(tenantId, dictCode, result, acceptEncoding, ifNoneMatch));
+    }
+
+    @GetMapping(value = "/all", headers = HEADER_EXACT_VERSION)
+    public CompletableFuture<ResponseEntity<byte[]>> allAtExactVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestHeader(HEADER_EXACT_VERSION) long exactVersion,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return queryService.readAllExact(tenantId, dictCode, exactVersion)
+                .thenApply(result -> allResponse(tenantId, dictCode, result, acceptEncoding, ifNoneMatch));
+    }
+
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> allNdjson(
             @PathVariable String tenantId,
             @PathVariable String dictCode,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return ndjsonResponse(queryService.readAll(tenantId, dictCode));
+    }
+
+    @GetMapping(value = "/all", headers = {HEADER_MIN_VERSION, MIN_VERSION_ONLY}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> allNdjsonAtVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestHeader(HEADER_MIN_VERSION) long minVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return queryService.readAll(tenantId, dictCode, minVersion).thenApply(this::ndjsonResponse);
+    }
+
+    @GetMapping(value = "/all", headers = HEADER_EXACT_VERSION, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> allNdjsonAtExactVersion(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestHeader(HEADER_EXACT_VERSION) long exactVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        return queryService.readAllExact(tenantId, dictCode, exactVersion).thenApply(this::ndjsonResponse);
+    }
+
+    /**
+     * Without {@code cursor} starts paging on the current version (at least {@code X-Min-Version}, exactly
+     * {@code X-Exact-Version} when sent); the returned {@code nextCursor} pins that version, so all pages of one walk
+     * come from the same snapshot.
+     */
+    @GetMapping(value = "/all", params = "limit")
+    public CompletableFuture<ResponseEntity<byte[]>> page(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam int limit,
+            @RequestParam(required = false) String cursor,
+            @RequestHeader(value = HEADER_MIN_VERSION, required = false) Long minVersion,
+            @RequestHeader(value = HEADER_EXACT_VERSION, required = false) Long exactVersion,
+            @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
+    ) {
+        tenantAccessService.assertAllowed(tenantId, authTenant);
+        if (limit < 1 || limit > maxPageSize) {
+            throw new BadRequestException("limit must be between 1 and " + maxPageSize);
+        }
+        if (cursor != null) {
+            PageCursor position = PageCursor.decode(cursor);
+            if (exactVersion != null && exactVersion != position.version()) {
+                throw new BadRequestException("Page cursor is on version " + position.version()
+                        + ", not on X-Exact-Version " + exactVersion);
+            }
+            QueryReadResult pinned = queryService.readPinned(tenantId, dictCode, position.version());
+            return CompletableFuture.completedFuture(pageResponse(pinned, position.offset(), limit));
+        }
+        CompletableFuture<QueryReadResult> current;
+        if (exactVersion != null) {
+            current = queryService.readAllExact(tenantId, dictCode, exactVersion);
+        } else if (minVersion != null) {
+            current = queryService.readAll(tenantId, dictCode, minVersion);
+        } else {
+            current = CompletableFuture.completedFuture(queryService.readAll(tenantId, dictCode));
+        }
+        return current.thenApply(result ->
+                pageResponse(queryService.pinForPaging(tenantId, dictCode, result), 0, limit));
+    }
+
+    /**
+     * Items of a {@code sorted-keys} dictionary in ascending key order: keys starting with {@code prefix} and/or
+     * within {@code [from, to)}. When {@code limit} cuts the range short, {@code nextFrom} is the {@code from} of
+     * the next request.
+     */
+    @GetMapping("/range")
+    public CompletableFuture<ResponseEntity<byte[]>> range(
+            @PathVariable String tenantId,
+            @PathVariable String dictCode,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(required = false) Integer limit,
             @RequestHeader(value = HEADER_MIN_VERSION, required = false) Long minVersion,
+            @RequestHeader(value = HEADER_EXACT_VERSION, required = false) Long exactVersion,
             @RequestHeader(value = "X-Auth-Tenant", required = false) String authTenant
     ) {
         tenantAccessService.assertAllowed(tenantId, authTenant);
-        QueryReadResult result = queryService.readAll(tenantId, dictCode, minVersion);
-        return withHeaders(result).body(new DictionaryItemsResponse(result.items()));
+        int rangeLimit = limit == null ? maxPageSize : limit;
+        if (rangeLimit < 1 || rangeLimit > maxPageSize) {
+            throw new BadRequestException("limit must be between 1 and " + maxPageSize);
+        }
+        return queryService.readRange(tenantId, dictCode, prefix, from, to, rangeLimit, minVersion, exactVersion)
+                .thenApply(range -> withHeaders(range.result()).body(snapshotEncoder.range(range)));
     }
 
     @GetMapping("/version")
@@ -89,10 +336,168 @@ public class QueryController {
         return withHeaders(result).body(new DictionaryVersionResponse(version));
     }
 
+    private ResponseEntity<byte[]> itemResponse(QueryReadResult result, String key, String ifNoneMatch) {
+        String etag = snapshotEncoder.itemEtag(result, key);
+        if (etagMatches(ifNoneMatch, etag)) {
+            return notModified(result, etag);
+        }
+        return withHeaders(result).eTag(etag).body(snapshotEncoder.item(result, key));
+    }
+
+    private ResponseEntity<byte[]> itemsResponse(QueryReadResult result) {
+        return withHeaders(result).body(snapshotEncoder.items(result));
+    }
+
+    private ResponseEntity<byte[]> allResponse(
+            String tenantId,
+            String dictCode,
+            QueryReadResult result,
+            String acceptEncoding,
+            String ifNoneMatch) {
+        // Weak: the gzip and identity bodies of one version are semantically equal but not byte-identical.
+        String etag = "W/\"" + tenantId + ":" + dictCode.toUpperCase(Locale.ROOT) + ":" + result.version() + "\"";
+        if (etagMatches(ifNoneMatch, etag)) {
+            return notModified(result, etag);
+        }
+        if (snapshotEncoder.gzipEnabled() && acceptsGzip(acceptEncoding)) {
+            return withHeaders(result)
+                    .eTag(etag)
+                    .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                    .body(snapshotEncoder.allGzip(result));
+        }
+        return withHeaders(result).eTag(etag).body(snapshotEncoder.all(result));
+    }
+
+    private ResponseEntity<StreamingResponseBody> ndjsonResponse(QueryReadResult result) {
+        return ResponseEntity.ok()
+                .headers(readHeaders(result))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(out -> snapshotEncoder.writeNdjson(result, out));
+    }
+
+    private ResponseEntity<byte[]> pageResponse(QueryReadResult pinned, int offset, int limit) {
+        String[] keys = pinned.snapshot().keyOrder();
+        if (offset > keys.length) {
+            throw new BadRequestException("Page cursor does not belong to this dictionary");
+        }
+        int end = (int) Math.min(keys.length, (long) offset + limit);
+        String nextCursor = end < keys.length ? new PageCursor(pinned.version(), end).encode() : null;
+        return withHeaders(pinned).body(snapshotEncoder.page(pinned, keys, offset, end, nextCursor));
+    }
+
+    private boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String trimmed = candidate.trim();
+            if ("*".equals(trimmed) || stripWeak(trimmed).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    private ResponseEntity<byte[]> notModified(QueryReadResult result, String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .headers(readHeaders(result))
+                .eTag(etag)
+                .build();
+    }
+
+    private boolean acceptsGzip(String acceptEncoding) {
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+    }
+
+    private List<String> parseKeys(String dictCode, String keys) {
+        boolean longKeys = isLongKeyed(dictCode);
+        return Arrays.stream(keys.split(","))
+                .map(String::trim)
+                .filter(v -> !v.isBlank())
+                .map(v -> longKeys ? canonicalLongKey(v) : v)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Keys of {@code key-type: LONG} dictionaries are parsed here once into their canonical decimal form; a key that
+     * is not a number cannot exist in such a dictionary.
+     */
+    private String itemKey(String dictCode, String key) {
+        if (!isLongKeyed(dictCode)) {
+            return key;
+        }
+        String canonical = canonicalLongKey(key);
+        if (canonical == null) {
+            throw new NotFoundException("Item not found: " + key);
+        }
+        return canonical;
+    }
+
+    private boolean isLongKeyed(String dictCode) {
+        return dictionaryRegistry.required(dictCode).getKeyType() == KeyType.LONG;
+    }
+
+    private String canonicalLongKey(String key) {
+        try {
+            return Long.toString(Long.parseLong(key));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     private ResponseEntity.BodyBuilder withHeaders(QueryReadResult result) {
+        return ResponseEntity.ok().headers(readHeaders(result)).contentType(MediaType.APPLICATION_JSON);
+    }
+
+    private HttpHeaders readHeaders(QueryReadResult result) {
         HttpHeaders headers = new HttpHeaders();
         headers.add(HEADER_DICT_VERSION, Long.toString(result.version()));
         headers.add(HEADER_DATA_SOURCE, result.sourceType() == DataSourceType.MEMORY ? "memory" : "postgres_fallback");
-        return ResponseEntity.ok().headers(headers);
+        return headers;
+    }
+
+    private record WhereCondition(String index, String value) {
+
+        private static WhereCondition parse(String where) {
+            int separator = where.indexOf(':');
+            if (separator < 1) {
+                throw new BadRequestException("where must be <index>:<value>");
+            }
+            return new WhereCondition(where.substring(0, separator), where.substring(separator + 1));
+        }
+    }
+
+    /**
+     * Opaque {@code nextCursor}: the pinned snapshot version and the offset of the next page in its key order.
+     */
+    private record PageCursor(long version, int offset) {
+
+        private String encode() {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString((version + ":" + offset).getBytes(StandardCharsets.US_ASCII));
+        }
+
+        private static PageCursor decode(String cursor) {
+            try {
+                String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+                int separator = decoded.indexOf(':');
+                PageCursor position = new PageCursor(
+                        Long.parseLong(decoded.substring(0, separator)),
+                        Integer.parseInt(decoded.substring(separator + 1)));
+                if (position.version() < 1 || position.offset() < 0) {
+                    throw new IllegalArgumentException("Negative cursor position");
+                }
+                return position;
+            } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+                throw new BadRequestException("Malformed page cursor");
+            }
+        }
     }
 }
@@ -0,0 +1,150 @@
+package com.contdistrapp.refdata.api;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.contdistrapp.refdata.domain.ShardRouting;
+import com.contdistrapp.refdata.service.TenantOwnership;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Routes dictionary reads of tenants owned by another pod of the shard ring: {@code PROXY} forwards the request and
+ * relays the owner's response, {@code REDIRECT} answers {@code 307} to the owner. Both set {@code X-Refdata-Owner}.
+ * Forwarded requests carry {@code X-Refdata-Forwarded-By} and are always served locally, so pods whose views of the
+ * ring briefly disagree cannot bounce a request. When the owner cannot be reached the read is served locally.
+ */
+@Component
+@ConditionalOnRefdataRole({"query-api"})
+public class ShardRoutingFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ShardRoutingFilter.class);
+
+    private static final String HEADER_OWNER = "X-Refdata-Owner";
+    private static final String HEADER_FORWARDED_BY = "X-Refdata-Forwarded-By";
+    private static final String TENANTS_PREFIX = "/v1/tenants/";
+    private static final String DICTIONARIES_SEGMENT = "/dictionaries/";
+
+    private static final List<String> FORWARDED_REQUEST_HEADERS = List.of(
+            HttpHeaders.ACCEPT,
+            HttpHeaders.ACCEPT_ENCODING,
+            HttpHeaders.IF_NONE_MATCH,
+            "X-Min-Version",
+            "X-Exact-Version",
+            "X-Auth-Tenant");
+    private static final List<String> RELAYED_RESPONSE_HEADERS = List.of(
+            HttpHeaders.CONTENT_TYPE,
+            HttpHeaders.CONTENT_ENCODING,
+            HttpHeaders.ETAG,
+            HttpHeaders.VARY,
+            HttpHeaders.RETRY_AFTER,
+            "X-Dict-Version",
+            "X-Data-Source");
+
+    private final TenantOwnership tenantOwnership;
+    private final Duration proxyTimeout;
+    private final HttpClient httpClient;
+
+    public ShardRoutingFilter(TenantOwnership tenantOwnership, RefDataProperties properties) {
+        this.tenantOwnership = tenantOwnership;
+        this.proxyTimeout = Duration.ofMillis(properties.getSharding().getProxyTimeoutMs());
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(proxyTimeout)
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !tenantOwnership.enabled()
+                || !"GET".equals(request.getMethod())
+                || request.getHeader(HEADER_FORWARDED_BY) != null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        Optional<String> owner = tenantId(request).flatMap(tenantOwnership::remoteOwner);
+        if (owner.isEmpty()) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        URI target = URI.create(owner.get() + request.getRequestURI()
+                + (request.getQueryString() == null ? "" : "?" + request.getQueryString()));
+        response.setHeader(HEADER_OWNER, owner.get());
+        if (tenantOwnership.routing() == ShardRouting.REDIRECT) {
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION, target.toString());
+            return;
+        }
+        if (!proxy(request, response, target)) {
+            chain.doFilter(request, response);
+        }
+    }
+
+    /**
+     * @return {@code false} when the owner did not answer and nothing was written to the response
+     */
+    private boolean proxy(HttpServletRequest request, HttpServletResponse response, URI target) throws IOException {
+        HttpRequest.Builder forwarded = HttpRequest.newBuilder(target)
+                .GET()
+                .timeout(proxyTimeout)
+                .header(HEADER_FORWARDED_BY, tenantOwnership.selfUrl());
+        for (String name : FORWARDED_REQUEST_HEADERS) {
+            String value = request.getHeader(name);
+            if (value != null) {
+                forwarded.header(name, value);
+            }
+        }
+
+        HttpResponse<byte[]> owned;
+        try {
+            owned = httpClient.send(forwarded.build(), HttpResponse.BodyHandlers.ofByteArray());
+        } catch (IOException e) {
+            log.warn("Shard owner {} unreachable, serving {} locally", target.getAuthority(), target.getPath(), e);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+
+        response.setStatus(owned.statusCode());
+        for (String name : RELAYED_RESPONSE_HEADERS) {
+            owned.headers().firstValue(name).ifPresent(value -> response.setHeader(name, value));
+        }
+        response.setContentLength(owned.body().length);
+        response.getOutputStream().write(owned.body());
+        return true;
+    }
+
+    private Optional<String> tenantId(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (!path.startsWith(TENANTS_PREFIX)) {
+            return Optional.empty();
+        }
+        int end = path.indexOf(DICTIONARIES_SEGMENT, TENANTS_PREFIX.length());
+        if (end <= TENANTS_PREFIX.length() || path.lastIndexOf('/', end - 1) >= TENANTS_PREFIX.length()) {
+            return Optional.empty();
+        }
+        return Optional.of(UriUtils.decode(path.substring(TENANTS_PREFIX.length(), end), StandardCharsets.UTF_8));
+    }
+}
@@ -1,16 +1,37 @@
 package com.contdistrapp.refdata.config;
 
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 
 @Configuration
 public class ExecutionConfig {
 
-    @Bean(destroyMethod = "shutdown")
+    @Bean(name = "cacheReloadExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.PLATFORM)
     public ExecutorService cacheReloadExecutor(RefDataProperties properties) {
         return Executors.newFixedThreadPool(properties.getCache().getReloadParallelism());
     }
+
+    /**
+     * One virtual thread per task with {@code spring.threads.virtual.enabled}; concurrent reloads are bounded by
+     * {@code reload-parallelism} permits in {@code QueryService} instead of by the pool size.
+     */
+    @Bean(name = "cacheReloadExecutor", destroyMethod = "shutdown")
+    @ConditionalOnThreading(Threading.VIRTUAL)
+    public ExecutorService virtualCacheReloadExecutor() {
+        return Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnRefdataRole({"query-api"})
+    public ForkJoinPool dictionaryLoadPool(RefDataProperties properties) {
+        return new ForkJoinPool(properties.getCache().getLoadParallelism());
+    }
 }
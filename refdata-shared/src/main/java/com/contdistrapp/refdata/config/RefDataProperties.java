@@ -1,6 +1,14 @@
 package com.contdistrapp.refdata.config;
 
+import com.contdistrapp.refdata.domain.FieldType;
+import com.contdistrapp.refdata.domain.KeyType;
+import com.contdistrapp.refdata.domain.ReloadMode;
+import com.contdistrapp.refdata.domain.ShardMembership;
+import com.contdistrapp.refdata.domain.ShardRouting;
+import com.contdistrapp.refdata.domain.SnapshotFormat;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import org.springframework.boot.context.properties.ConfigurationProperties;
@@ -27,6 +35,9 @@ public class RefDataProperties {
     @Valid
     private Outbox outbox = new Outbox();
 
+    @Valid
+    private Dispatch dispatch = new Dispatch();
+
     @Valid
     private Cache cache = new Cache();
 
@@ -36,6 +47,9 @@ public class RefDataProperties {
     @Valid
     private Redis redis = new Redis();
 
+    @Valid
+    private Sharding sharding = new Sharding();
+
     @Valid
     private List<Dictionary> dictionaries = new ArrayList<>();
 
@@ -63,6 +77,14 @@ public class RefDataProperties {
         this.outbox = outbox;
     }
 
+    public Dispatch getDispatch() {
+        return dispatch;
+    }
+
+    public void setDispatch(Dispatch dispatch) {
+        this.dispatch = dispatch;
+    }
+
     public Cache getCache() {
         return cache;
     }
@@ -95,6 +117,14 @@ public class RefDataProperties {
         this.redis = redis;
     }
 
+    public Sharding getSharding() {
+        return sharding;
+    }
+
+    public void setSharding(Sharding sharding) {
+        this.sharding = sharding;
+    }
+
     public Optional<Dictionary> findDictionary(String dictCode) {
         if (dictCode == null) {
             return Optional.empty();
@@ -134,6 +164,20 @@ public class RefDataProperties {
         @Min(1)
         private int waitForReloadMs = 100;
 
+        private boolean gzipPrecompressed = false;
+
+        @Min(0)
+        private int memoizeAllMaxBytes = 16 * 1024 * 1024;
+
+        @Min(1)
+        private int maxConcurrentFallbacks = 4;
+
+        @Min(1)
+        private int maxPageSize = 10_000;
+
+        @Min(1_000)
+        private int pageCursorTtlMs = 60_000;
+
         public int getWaitForReloadMs() {
             return waitForReloadMs;
         }
@@ -141,6 +185,46 @@ public class RefDataProperties {
         public void setWaitForReloadMs(int waitForReloadMs) {
             this.waitForReloadMs = waitForReloadMs;
         }
+
+        public boolean isGzipPrecompressed() {
+            return gzipPrecompressed;
+        }
+
+        public void setGzipPrecompressed(boolean gzipPrecompressed) {
+            this.gzipPrecompressed = gzipPrecompressed;
+        }
+
+        public int getMemoizeAllMaxBytes() {
+            return memoizeAllMaxBytes;
+        }
+
+        public void setMemoizeAllMaxBytes(int memoizeAllMaxBytes) {
+            this.memoizeAllMaxBytes = memoizeAllMaxBytes;
+        }
+
+        public int getMaxConcurrentFallbacks() {
+            return maxConcurrentFallbacks;
+        }
+
+        public void setMaxConcurrentFallbacks(int maxConcurrentFallbacks) {
+            this.maxConcurrentFallbacks = maxConcurrentFallbacks;
+        }
+
+        public int getMaxPageSize() {
+            return maxPageSize;
+        }
+
+        public void setMaxPageSize(int maxPageSize) {
+            this.maxPageSize = maxPageSize;
+        }
+
+        public int getPageCursorTtlMs() {
+            return pageCursorTtlMs;
+        }
+
+        public void setPageCursorTtlMs(int pageCursorTtlMs) {
+            this.pageCursorTtlMs = pageCursorTtlMs;
+        }
     }
 
     public static class Outbox {
@@ -168,11 +252,58 @@ public class RefDataProperties {
         }
     }
 
+    public static class Dispatch {
+
+        @Min(1)
+        private int maxConcurrentApplies = 16;
+
+        public int getMaxConcurrentApplies() {
+            return maxConcurrentApplies;
+        }
+
+        public void setMaxConcurrentApplies(int maxConcurrentApplies) {
+            this.maxConcurrentApplies = maxConcurrentApplies;
+        }
+    }
+
     public static class Cache {
 
         @Min(1)
         private int reloadParallelism = 8;
 
+        @Min(1)
+        private int incrementalMaxLagVersions = 1000;
+
+        @Min(0)
+        private int coalesceWindowMs = 20;
+
+        @Min(0)
+        private int reloadJitterMaxMs = 50;
+
+        @Min(1)
+        private int loadFetchSize = 1000;
+
+        @Min(1)
+        private int loadParallelism = 4;
+
+        @Min(0)
+        private long memoryBudgetMb;
+
+        @Min(0)
+        private int emptyRecheckMs = 30_000;
+
+        @Min(0)
+        private int unknownTenantCacheSize = 10_000;
+
+        @Min(0)
+        private int retainedVersions = 2;
+
+        @Valid
+        private Warmup warmup = new Warmup();
+
+        @Valid
+        private Persistence persistence = new Persistence();
+
         public int getReloadParallelism() {
             return reloadParallelism;
         }
@@ -180,6 +311,196 @@ public class RefDataProperties {
         public void setReloadParallelism(int reloadParallelism) {
             this.reloadParallelism = reloadParallelism;
         }
+
+        public int getIncrementalMaxLagVersions() {
+            return incrementalMaxLagVersions;
+        }
+
+        public void setIncrementalMaxLagVersions(int incrementalMaxLagVersions) {
+            this.incrementalMaxLagVersions = incrementalMaxLagVersions;
+        }
+
+        public int getCoalesceWindowMs() {
+            return coalesceWindowMs;
+        }
+
+        public void setCoalesceWindowMs(int coalesceWindowMs) {
+            this.coalesceWindowMs = coalesceWindowMs;
+        }
+
+        public int getReloadJitterMaxMs() {
+            return reloadJitterMaxMs;
+        }
+
+        public void setReloadJitterMaxMs(int reloadJitterMaxMs) {
+            this.reloadJitterMaxMs = reloadJitterMaxMs;
+        }
+
+        public int getLoadFetchSize() {
+            return loadFetchSize;
+        }
+
+        public void setLoadFetchSize(int loadFetchSize) {
+            this.loadFetchSize = loadFetchSize;
+        }
+
+        public int getLoadParallelism() {
+            return loadParallelism;
+        }
+
+        public void setLoadParallelism(int loadParallelism) {
+            this.loadParallelism = loadParallelism;
+        }
+
+        public long getMemoryBudgetMb() {
+            return memoryBudgetMb;
+        }
+
+        public void setMemoryBudgetMb(long memoryBudgetMb) {
+            this.memoryBudgetMb = memoryBudgetMb;
+        }
+
+        public int getEmptyRecheckMs() {
+            return emptyRecheckMs;
+        }
+
+        public void setEmptyRecheckMs(int emptyRecheckMs) {
+            this.emptyRecheckMs = emptyRecheckMs;
+        }
+
+        public int getUnknownTenantCacheSize() {
+            return unknownTenantCacheSize;
+        }
+
+        public void setUnknownTenantCacheSize(int unknownTenantCacheSize) {
+            this.unknownTenantCacheSize = unknownTenantCacheSize;
+        }
+
+        public int getRetainedVersions() {
+            return retainedVersions;
+        }
+
+        public void setRetainedVersions(int retainedVersions) {
+            this.retainedVersions = retainedVersions;
+        }
+
+        public Warmup getWarmup() {
+            return warmup;
+        }
+
+        public void setWarmup(Warmup warmup) {
+            this.warmup = warmup;
+        }
+
+        public Persistence getPersistence() {
+            return persistence;
+        }
+
+        public void setPersistence(Persistence persistence) {
+            this.persistence = persistence;
+        }
+    }
+
+    public static class Persistence {
+
+        private boolean enabled = false;
+
+        private String directory = "";
+
+        @Min(0)
+        private int writeDelayMs = 5_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(String directory) {
+            this.directory = directory;
+        }
+
+        public int getWriteDelayMs() {
+            return writeDelayMs;
+        }
+
+        public void setWriteDelayMs(int writeDelayMs) {
+            this.writeDelayMs = writeDelayMs;
+        }
+    }
+
+    public static class Warmup {
+
+        private boolean enabled = false;
+
+        private List<String> tenants = new ArrayList<>();
+
+        @Min(1)
+        private int maxDictionaries = 10_000;
+
+        @DecimalMin("0.0")
+        @DecimalMax("1.0")
+        private double readyFraction = 0.95;
+
+        @Min(1)
+        private long retryInitialMs = 1_000;
+
+        @Min(1)
+        private long retryMaxMs = 30_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public List<String> getTenants() {
+            return tenants;
+        }
+
+        public void setTenants(List<String> tenants) {
+            this.tenants = tenants;
+        }
+
+        public int getMaxDictionaries() {
+            return maxDictionaries;
+        }
+
+        public void setMaxDictionaries(int maxDictionaries) {
+            this.maxDictionaries = maxDictionaries;
+        }
+
+        public double getReadyFraction() {
+            return readyFraction;
+        }
+
+        public void setReadyFraction(double readyFraction) {
+            this.readyFraction = readyFraction;
+        }
+
+        public long getRetryInitialMs() {
+            return retryInitialMs;
+        }
+
+        public void setRetryInitialMs(long retryInitialMs) {
+            this.retryInitialMs = retryInitialMs;
+        }
+
+        public long getRetryMaxMs() {
+            return retryMaxMs;
+        }
+
+        public void setRetryMaxMs(long retryMaxMs) {
+            this.retryMaxMs = retryMaxMs;
+        }
     }
 
     public static class Kafka {
@@ -231,6 +552,113 @@ public class RefDataProperties {
         }
     }
 
+    public static class Sharding {
+
+        private boolean enabled = false;
+
+        private String selfUrl = "";
+
+        private ShardMembership membership = ShardMembership.STATIC;
+
+        private List<String> members = new ArrayList<>();
+
+        @Min(1)
+        private int virtualNodes = 128;
+
+        private ShardRouting routing = ShardRouting.PROXY;
+
+        @Min(1)
+        private int proxyTimeoutMs = 2_000;
+
+        private String membersKey = "refdata:query:members";
+
+        @Min(100)
+        private int heartbeatMs = 2_000;
+
+        @Min(100)
+        private int memberTtlMs = 10_000;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getSelfUrl() {
+            return selfUrl;
+        }
+
+        public void setSelfUrl(String selfUrl) {
+            this.selfUrl = selfUrl;
+        }
+
+        public ShardMembership getMembership() {
+            return membership;
+        }
+
+        public void setMembership(ShardMembership membership) {
+            this.membership = membership;
+        }
+
+        public List<String> getMembers() {
+            return members;
+        }
+
+        public void setMembers(List<String> members) {
+            this.members = members;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+
+        public ShardRouting getRouting() {
+            return routing;
+        }
+
+        public void setRouting(ShardRouting routing) {
+            this.routing = routing;
+        }
+
+        public int getProxyTimeoutMs() {
+            return proxyTimeoutMs;
+        }
+
+        public void setProxyTimeoutMs(int proxyTimeoutMs) {
+            this.proxyTimeoutMs = proxyTimeoutMs;
+        }
+
+        public String getMembersKey() {
+            return membersKey;
+        }
+
+        public void setMembersKey(String membersKey) {
+            this.membersKey = membersKey;
+        }
+
+        public int getHeartbeatMs() {
+            return heartbeatMs;
+        }
+
+        public void setHeartbeatMs(int heartbeatMs) {
+            this.heartbeatMs = heartbeatMs;
+        }
+
+        public int getMemberTtlMs() {
+            return memberTtlMs;
+        }
+
+        public void setMemberTtlMs(int memberTtlMs) {
+            this.memberTtlMs = memberTtlMs;
+        }
+    }
+
     public static class Redis {
 
         private boolean enabled = false;
@@ -242,6 +670,21 @@ public class RefDataProperties {
 
         private String streamStartId = "0-0";
 
+        private boolean snapshotCacheEnabled = false;
+        private String snapshotKeyPrefix = "refdata:snap:";
+
+        @Min(1)
+        private int snapshotTtlSeconds = 600;
+
+        @Min(100)
+        private int snapshotLockTtlMs = 30_000;
+
+        @Min(0)
+        private int snapshotWaitMs = 2_000;
+
+        @Min(1)
+        private int snapshotMaxBytes = 64 * 1024 * 1024;
+
         public boolean isEnabled() {
             return enabled;
         }
@@ -281,6 +724,54 @@ public class RefDataProperties {
         public void setStreamStartId(String streamStartId) {
             this.streamStartId = streamStartId;
         }
+
+        public boolean isSnapshotCacheEnabled() {
+            return snapshotCacheEnabled;
+        }
+
+        public void setSnapshotCacheEnabled(boolean snapshotCacheEnabled) {
+            this.snapshotCacheEnabled = snapshotCacheEnabled;
+        }
+
+        public String getSnapshotKeyPrefix() {
+            return snapshotKeyPrefix;
+        }
+
+        public void setSnapshotKeyPrefix(String snapshotKeyPrefix) {
+            this.snapshotKeyPrefix = snapshotKeyPrefix;
+        }
+
+        public int getSnapshotTtlSeconds() {
+            return snapshotTtlSeconds;
+        }
+
+        public void setSnapshotTtlSeconds(int snapshotTtlSeconds) {
+            this.snapshotTtlSeconds = snapshotTtlSeconds;
+        }
+
+        public int getSnapshotLockTtlMs() {
+            return snapshotLockTtlMs;
+        }
+
+        public void setSnapshotLockTtlMs(int snapshotLockTtlMs) {
+            this.snapshotLockTtlMs = snapshotLockTtlMs;
+        }
+
+        public int getSnapshotWaitMs() {
+            return snapshotWaitMs;
+        }
+
+        public void setSnapshotWaitMs(int snapshotWaitMs) {
+            this.snapshotWaitMs = snapshotWaitMs;
+        }
+
+        public int getSnapshotMaxBytes() {
+            return snapshotMaxBytes;
+        }
+
+        public void setSnapshotMaxBytes(int snapshotMaxBytes) {
+            this.snapshotMaxBytes = snapshotMaxBytes;
+        }
     }
 
     public static class Dictionary {
@@ -293,12 +784,35 @@ public class RefDataProperties {
         @NotBlank
         private String loadSql;
 
+        private String loadByKeysSql;
+
+        private String loadOneSql;
+
+        private String partitionedLoadSql;
+
+        @Min(1)
+        private int loadPartitions = 4;
+
         private String driftCheckSql;
 
         @Valid
         private Apply apply = new Apply();
 
-        private String reloadOnEvent = "FULL";
+        private ReloadMode reloadOnEvent = ReloadMode.FULL;
+
+        private boolean pinned = false;
+
+        private SnapshotFormat snapshotFormat = SnapshotFormat.TREE;
+
+        private KeyType keyType = KeyType.STRING;
+
+        private boolean sortedKeys = false;
+
+        @Valid
+        private List<SchemaField> schema = new ArrayList<>();
+
+        @Valid
+        private List<IndexField> indexes = new ArrayList<>();
 
         public String getCode() {
             return code;
@@ -324,6 +838,38 @@ public class RefDataProperties {
             this.loadSql = loadSql;
         }
 
+        public String getLoadByKeysSql() {
+            return loadByKeysSql;
+        }
+
+        public void setLoadByKeysSql(String loadByKeysSql) {
+            this.loadByKeysSql = loadByKeysSql;
+        }
+
+        public String getLoadOneSql() {
+            return loadOneSql;
+        }
+
+        public void setLoadOneSql(String loadOneSql) {
+            this.loadOneSql = loadOneSql;
+        }
+
+        public String getPartitionedLoadSql() {
+            return partitionedLoadSql;
+        }
+
+        public void setPartitionedLoadSql(String partitionedLoadSql) {
+            this.partitionedLoadSql = partitionedLoadSql;
+        }
+
+        public int getLoadPartitions() {
+            return loadPartitions;
+        }
+
+        public void setLoadPartitions(int loadPartitions) {
+            this.loadPartitions = loadPartitions;
+        }
+
         public String getDriftCheckSql() {
             return driftCheckSql;
         }
@@ -340,13 +886,123 @@ public class RefDataProperties {
             this.apply = apply;
         }
 
-        public String getReloadOnEvent() {
+        public ReloadMode getReloadOnEvent() {
             return reloadOnEvent;
         }
 
-        public void setReloadOnEvent(String reloadOnEvent) {
+        public void setReloadOnEvent(ReloadMode reloadOnEvent) {
             this.reloadOnEvent = reloadOnEvent;
         }
+
+        public boolean isPinned() {
+            return pinned;
+        }
+
+        public void setPinned(boolean pinned) {
+            this.pinned = pinned;
+        }
+
+        public SnapshotFormat getSnapshotFormat() {
+            return snapshotFormat;
+        }
+
+        public void setSnapshotFormat(SnapshotFormat snapshotFormat) {
+            this.snapshotFormat = snapshotFormat;
+        }
+
+        public KeyType getKeyType() {
+            return keyType;
+        }
+
+        public void setKeyType(KeyType keyType) {
+            this.keyType = keyType;
+        }
+
+        public boolean isSortedKeys() {
+            return sortedKeys;
+        }
+
+        public void setSortedKeys(boolean sortedKeys) {
+            this.sortedKeys = sortedKeys;
+        }
+
+        public List<SchemaField> getSchema() {
+            return schema;
+        }
+
+        public void setSchema(List<SchemaField> schema) {
+            this.schema = schema;
+        }
+
+        public List<IndexField> getIndexes() {
+            return indexes;
+        }
+
+        public void setIndexes(List<IndexField> indexes) {
+            this.indexes = indexes;
+        }
+    }
+
+    /**
+     * Top-level payload field of a {@code snapshot-format: COLUMNAR} dictionary.
+     */
+    public static class SchemaField {
+
+        @NotBlank
+        private String name;
+
+        private FieldType type = FieldType.STRING;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public FieldType getType() {
+            return type;
+        }
+
+        public void setType(FieldType type) {
+            this.type = type;
+        }
+    }
+
+    public static class IndexField {
+
+        @NotBlank
+        private String name;
+
+        @NotBlank
+        private String path;
+
+        private FieldType type = FieldType.STRING;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public void setPath(String path) {
+            this.path = path;
+        }
+
+        public FieldType getType() {
+            return type;
+        }
+
+        public void setType(FieldType type) {
+            this.type = type;
+        }
     }
 
     public static class Apply {
@@ -0,0 +1,8 @@
+package com.contdistrapp.refdata.domain;
+
+public enum FieldType {
+    LONG,
+    DOUBLE,
+    BOOLEAN,
+    STRING
+}
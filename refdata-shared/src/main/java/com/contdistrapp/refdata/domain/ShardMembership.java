@@ -0,0 +1,6 @@
+package com.contdistrapp.refdata.domain;
+
+public enum ShardMembership {
+    STATIC,
+    REDIS
+}
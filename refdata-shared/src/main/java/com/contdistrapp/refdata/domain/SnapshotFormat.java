@@ -0,0 +1,8 @@
+package com.contdistrapp.refdata.domain;
+
+public enum SnapshotFormat {
+    TREE,
+    RAW,
+    OFF_HEAP,
+    COLUMNAR
+}
@@ -0,0 +1,8 @@
+package com.contdistrapp.refdata.error;
+
+public class CursorExpiredException extends RuntimeException {
+
+    public CursorExpiredException(String message) {
+        super(message);
+    }
+}
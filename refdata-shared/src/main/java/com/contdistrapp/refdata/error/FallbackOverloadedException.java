@@ -0,0 +1,8 @@
+package com.contdistrapp.refdata.error;
+
+public class FallbackOverloadedException extends RuntimeException {
+
+    public FallbackOverloadedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,28 @@
+package com.contdistrapp.refdata.error;
+
+public class VersionNotRetainedException extends RuntimeException {
+
+    private final long requestedVersion;
+    private final long oldestRetainedVersion;
+    private final long currentVersion;
+
+    public VersionNotRetainedException(long requestedVersion, long oldestRetainedVersion, long currentVersion) {
+        super("VERSION_NOT_RETAINED requested=" + requestedVersion + " oldestRetained=" + oldestRetainedVersion
+                + " current=" + currentVersion);
+        this.requestedVersion = requestedVersion;
+        this.oldestRetainedVersion = oldestRetainedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    public long getRequestedVersion() {
+        return requestedVersion;
+    }
+
+    public long getOldestRetainedVersion() {
+        return oldestRetainedVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,4 @@
+package com.contdistrapp.refdata.persistence;
+
+public record DictionaryChangeRecord(long version, String itemKey) {
+}
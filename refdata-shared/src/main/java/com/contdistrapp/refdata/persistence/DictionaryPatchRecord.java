@@ -0,0 +1,11 @@
+package com.contdistrapp.refdata.persistence;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Keys changed after a loaded version up to {@code version} and the rows they hold at {@code version}; a key
+ * missing from {@code items} was deleted.
+ */
+public record DictionaryPatchRecord<V>(long version, Set<String> changedKeys, Map<String, V> items) {
+}
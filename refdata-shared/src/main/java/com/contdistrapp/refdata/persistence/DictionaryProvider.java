@@ -4,15 +4,51 @@ import com.contdistrapp.refdata.domain.UpdateCommand;
 import com.contdistrapp.refdata.domain.UpdateItem;
 import com.fasterxml.jackson.databind.JsonNode;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 
 public interface DictionaryProvider {
 
     Map<String, JsonNode> loadAll(String tenantId, String dictCode);
 
+    /**
+     * Committed version and rows read from one consistent database snapshot. The returned items are unmodifiable,
+     * owned by the caller and already in the map layout of the dictionary's snapshot, so they back a cache snapshot
+     * without another copy.
+     */
+    DictionarySnapshotRecord<JsonNode> loadCommitted(String tenantId, String dictCode);
+
+    /**
+     * Same as {@link #loadCommitted(String, String)}, but keeps every payload as the UTF-8 bytes of column
+     * {@code v} without parsing it.
+     */
+    DictionarySnapshotRecord<byte[]> loadCommittedRaw(String tenantId, String dictCode);
+
+    Map<String, JsonNode> loadByKeys(String tenantId, String dictCode, Collection<String> keys);
+
+    Map<String, byte[]> loadByKeysRaw(String tenantId, String dictCode, Collection<String> keys);
+
+    Optional<JsonNode> loadOne(String tenantId, String dictCode, String key);
+
     long getCommittedVersion(String tenantId, String dictCode);
 
+    boolean hasCommittedDictionaries(String tenantId);
+
+    /**
+     * Committed version, the keys touched by versions {@code (fromVersion, version]} and their rows, read from one
+     * consistent database snapshot. Empty when the change log does not cover every version in the range
+     * (snapshot, pruned history) and the caller has to reload in full.
+     */
+    Optional<DictionaryPatchRecord<JsonNode>> loadChanges(String tenantId, String dictCode, long fromVersion);
+
+    /**
+     * Same as {@link #loadChanges(String, String, long)}, but keeps every payload as the UTF-8 bytes of column
+     * {@code v} without parsing it.
+     */
+    Optional<DictionaryPatchRecord<byte[]>> loadChangesRaw(String tenantId, String dictCode, long fromVersion);
+
     void applyDelta(String tenantId, String dictCode, List<UpdateItem> items, UpdateCommand event, long eventVersion);
 
     void applySnapshot(String tenantId, String dictCode, List<UpdateItem> items, UpdateCommand event, long eventVersion);
@@ -0,0 +1,6 @@
+package com.contdistrapp.refdata.persistence;
+
+import java.util.Map;
+
+public record DictionarySnapshotRecord<V>(long version, Map<String, V> items) {
+}
@@ -0,0 +1,4 @@
+package com.contdistrapp.refdata.persistence;
+
+public record DictionaryVersionRecord(String tenantId, String dictCode, long version) {
+}
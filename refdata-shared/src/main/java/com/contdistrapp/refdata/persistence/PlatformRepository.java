@@ -19,6 +19,7 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -189,6 +190,24 @@ public class PlatformRepository {
         return rows.isEmpty() ? new DictionaryMetaRecord(0, null) : rows.get(0);
     }
 
+    public List<DictionaryVersionRecord> findRecentDictionaryVersions(List<String> tenantIds, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantIds", tenantIds)
+                .addValue("limit", limit);
+        String tenantFilter = tenantIds.isEmpty() ? "" : "  and tenant_id in (:tenantIds)\n";
+        return jdbc.query("""
+                select tenant_id, dict_code, version
+                from dictionary_meta
+                where version > 0
+                """ + tenantFilter + """
+                order by updated_at desc
+                limit :limit
+                """, params, (rs, rowNum) -> new DictionaryVersionRecord(
+                rs.getString("tenant_id"),
+                rs.getString("dict_code"),
+                rs.getLong("version")));
+    }
+
     public long allocateNextVersion(String tenantId, String dictCode, Long sourceRevision) {
         for (int attempt = 0; attempt < 3; attempt++) {
             MapSqlParameterSource updateParams = new MapSqlParameterSource()
@@ -389,10 +408,75 @@ public class PlatformRepository {
                 """, params);
     }
 
+    public void insertDictionaryChanges(String tenantId, String dictCode, long version, Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource[] batch = keys.stream()
+                .map(key -> new MapSqlParameterSource()
+                        .addValue("tenantId", tenantId)
+                        .addValue("dictCode", dictCode)
+                        .addValue("version", version)
+                        .addValue("key", key))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbc.batchUpdate("""
+                insert into dictionary_change(tenant_id, dict_code, version, item_key)
+                values (:tenantId, :dictCode, :version, :key)
+                """, batch);
+    }
+
+    public List<DictionaryChangeRecord> findDictionaryChanges(
+            String tenantId,
+            String dictCode,
+            long fromVersionExclusive,
+            long toVersionInclusive) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("dictCode", dictCode)
+                .addValue("fromVersion", fromVersionExclusive)
+                .addValue("toVersion", toVersionInclusive);
+        return jdbc.query("""
+                select version, item_key
+                from dictionary_change
+                where tenant_id = :tenantId
+                  and dict_code = :dictCode
+                  and version > :fromVersion
+                  and version <= :toVersion
+                order by version asc
+                """, params, (rs, rowNum) -> new DictionaryChangeRecord(
+                rs.getLong("version"),
+                rs.getString("item_key")));
+    }
+
+    public void pruneDictionaryChanges(String tenantId, String dictCode, long upToVersionInclusive) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("dictCode", dictCode)
+                .addValue("version", upToVersionInclusive);
+        jdbc.update("""
+                delete from dictionary_change
+                where tenant_id = :tenantId
+                  and dict_code = :dictCode
+                  and version <= :version
+                """, params);
+    }
+
     public long currentCommittedVersion(String tenantId, String dictCode) {
         return dictionaryMeta(tenantId, dictCode).version();
     }
 
+    public boolean hasAnyDictionary(String tenantId) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId);
+        List<Integer> rows = jdbc.query("""
+                select 1
+                from dictionary_meta
+                where tenant_id = :tenantId
+                limit 1
+                """, params, (rs, rowNum) -> rs.getInt(1));
+        return !rows.isEmpty();
+    }
+
     public Optional<Long> lastSourceRevision(String tenantId, String dictCode) {
         return Optional.ofNullable(dictionaryMeta(tenantId, dictCode).lastSourceRevision());
     }
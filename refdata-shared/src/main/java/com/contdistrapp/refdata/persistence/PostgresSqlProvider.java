@@ -5,72 +5,344 @@ import com.contdistrapp.refdata.domain.ItemOperation;
 import com.contdistrapp.refdata.domain.UpdateCommand;
 import com.contdistrapp.refdata.domain.UpdateItem;
 import com.contdistrapp.refdata.service.DictionaryRegistry;
+import com.contdistrapp.refdata.service.ItemsBuilder;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.sql.DataSource;
 
 @Component
 public class PostgresSqlProvider implements DictionaryProvider {
 
+    private static final int KEYS_PER_QUERY = 500;
+    private static final int PARTITIONED_LOAD_ATTEMPTS = 3;
+    private static final byte[] NULL_JSON = "null".getBytes(StandardCharsets.UTF_8);
+
     private final NamedParameterJdbcTemplate jdbc;
+    private final NamedParameterJdbcTemplate streamingJdbc;
     private final PlatformRepository repository;
     private final DictionaryRegistry dictionaryRegistry;
     private final ObjectMapper objectMapper;
+    private final TransactionTemplate consistentReadTx;
+    private final TransactionTemplate cursorReadTx;
+    private final ObjectProvider<ForkJoinPool> dictionaryLoadPool;
 
     public PostgresSqlProvider(
             NamedParameterJdbcTemplate jdbc,
             PlatformRepository repository,
             DictionaryRegistry dictionaryRegistry,
-            ObjectMapper objectMapper) {
+            ObjectMapper objectMapper,
+            RefDataProperties properties,
+            PlatformTransactionManager transactionManager,
+            ObjectProvider<ForkJoinPool> dictionaryLoadPool) {
         this.jdbc = jdbc;
+        JdbcTemplate streaming = new JdbcTemplate(jdbc.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(properties.getCache().getLoadFetchSize());
+        this.streamingJdbc = new NamedParameterJdbcTemplate(streaming);
         this.repository = repository;
         this.dictionaryRegistry = dictionaryRegistry;
         this.objectMapper = objectMapper;
+        this.consistentReadTx = new TransactionTemplate(transactionManager);
+        this.consistentReadTx.setReadOnly(true);
+        this.consistentReadTx.setIsolationLevel(consistentReadIsolation(streaming.getDataSource()));
+        this.cursorReadTx = new TransactionTemplate(transactionManager);
+        this.cursorReadTx.setReadOnly(true);
+        this.dictionaryLoadPool = dictionaryLoadPool;
+    }
+
+    /**
+     * PostgreSQL takes the REPEATABLE READ snapshot at the first statement of the transaction. H2 takes it per
+     * table at the first read of that table, so a commit between two statements of the transaction stays visible
+     * to the later ones; only its SERIALIZABLE level pins one snapshot for the whole transaction.
+     */
+    private static int consistentReadIsolation(DataSource dataSource) {
+        String product;
+        try {
+            product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+        } catch (MetaDataAccessException e) {
+            return TransactionDefinition.ISOLATION_REPEATABLE_READ;
+        }
+        return "H2".equals(product)
+                ? TransactionDefinition.ISOLATION_SERIALIZABLE
+                : TransactionDefinition.ISOLATION_REPEATABLE_READ;
     }
 
     @Override
     public Map<String, JsonNode> loadAll(String tenantId, String dictCode) {
-        RefDataProperties.Dictionary cfg = dictionaryRegistry.required(dictCode);
+        return loadAll(tenantId, dictionaryRegistry.required(dictCode), this::decodeTree);
+    }
+
+    @Override
+    public DictionarySnapshotRecord<JsonNode> loadCommitted(String tenantId, String dictCode) {
+        return loadCommitted(tenantId, dictionaryRegistry.required(dictCode), this::decodeTree, false);
+    }
+
+    @Override
+    public DictionarySnapshotRecord<byte[]> loadCommittedRaw(String tenantId, String dictCode) {
+        return loadCommitted(tenantId, dictionaryRegistry.required(dictCode), this::decodeRaw, true);
+    }
 
+    @Override
+    public Map<String, JsonNode> loadByKeys(String tenantId, String dictCode, Collection<String> keys) {
+        return loadByKeys(tenantId, dictionaryRegistry.required(dictCode), keys, this::decodeTree);
+    }
+
+    @Override
+    public Map<String, byte[]> loadByKeysRaw(String tenantId, String dictCode, Collection<String> keys) {
+        return loadByKeys(tenantId, dictionaryRegistry.required(dictCode), keys, this::decodeRaw);
+    }
+
+    private <V> Map<String, V> loadAll(String tenantId, RefDataProperties.Dictionary cfg, Function<String, V> decoder) {
         MapSqlParameterSource params = new MapSqlParameterSource()
                 .addValue("tenantId", tenantId)
                 .addValue("dictCode", cfg.getCode());
 
-        Map<String, JsonNode> result = new LinkedHashMap<>();
-        jdbc.query(cfg.getLoadSql(), params, rs -> {
-            String key = rs.getString("k");
-            String raw = rs.getString("v");
-            if (key == null) {
-                return;
-            }
-            if (raw == null || raw.isBlank()) {
-                result.put(key, objectMapper.nullNode());
-                return;
-            }
-            try {
-                result.put(key, objectMapper.readTree(raw));
-            } catch (JsonProcessingException e) {
-                throw new IllegalArgumentException("loadSql must return JSON in column v", e);
+        Map<String, V> result = new HashMap<>();
+        cursorReadTx.executeWithoutResult(status -> streamingJdbc.query(cfg.getLoadSql(), params, rs -> {
+            readRow(rs, result::put, decoder);
+        }));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private <V> Map<String, V> loadAll(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            Function<String, V> decoder,
+            boolean rawPayloads) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("dictCode", cfg.getCode());
+
+        ItemsBuilder<V> items = ItemsBuilder.forDictionary(cfg, rawPayloads);
+        cursorReadTx.executeWithoutResult(status -> streamingJdbc.query(cfg.getLoadSql(), params, rs -> {
+            readRow(rs, items::put, decoder);
+        }));
+        return items.build();
+    }
+
+    /**
+     * The single-query load runs in one read-only REPEATABLE READ transaction: PostgreSQL keeps one MVCC snapshot
+     * for the version and the rows and the driver streams rows through a cursor of {@code loadFetchSize}.
+     * Partitioned loads cannot share that snapshot across connections, so they are accepted only when the
+     * committed version did not move while the partitions were read. Rows go straight into the map layout of the
+     * dictionary's snapshot, see {@link ItemsBuilder#forDictionary}.
+     */
+    private <V> DictionarySnapshotRecord<V> loadCommitted(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            Function<String, V> decoder,
+            boolean rawPayloads) {
+        String dictCode = cfg.getCode();
+        String partitionedLoadSql = cfg.getPartitionedLoadSql();
+        if (partitionedLoadSql != null && !partitionedLoadSql.isBlank() && cfg.getLoadPartitions() > 1) {
+            for (int attempt = 0; attempt < PARTITIONED_LOAD_ATTEMPTS; attempt++) {
+                long version = repository.currentCommittedVersion(tenantId, dictCode);
+                Map<String, V> items = loadPartitions(tenantId, cfg, decoder, rawPayloads);
+                if (repository.currentCommittedVersion(tenantId, dictCode) == version) {
+                    return new DictionarySnapshotRecord<>(version, items);
+                }
             }
-        });
+        }
+
+        return consistentReadTx.execute(status -> new DictionarySnapshotRecord<>(
+                repository.currentCommittedVersion(tenantId, dictCode),
+                loadAll(tenantId, cfg, decoder, rawPayloads)));
+    }
+
+    private <V> Map<String, V> loadPartitions(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            Function<String, V> decoder,
+            boolean rawPayloads) {
+        int partitions = cfg.getLoadPartitions();
+        // Only query-api pods load whole dictionaries and create the pool.
+        ForkJoinPool pool = dictionaryLoadPool.getObject();
+        List<ForkJoinTask<ItemsBuilder<V>>> tasks = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            int current = partition;
+            tasks.add(pool.submit(
+                    () -> loadPartition(tenantId, cfg, current, partitions, decoder, rawPayloads)));
+        }
+
+        List<ItemsBuilder<V>> parts = new ArrayList<>(partitions);
+        for (ForkJoinTask<ItemsBuilder<V>> task : tasks) {
+            parts.add(task.join());
+        }
+        // Rows are already decoded; merging only moves references into the builder of the largest partition.
+        parts.sort((left, right) -> Integer.compare(right.size(), left.size()));
+        ItemsBuilder<V> merged = parts.get(0);
+        for (ItemsBuilder<V> part : parts.subList(1, parts.size())) {
+            part.build().forEach(merged::put);
+        }
+        return merged.build();
+    }
+
+    private <V> ItemsBuilder<V> loadPartition(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            int partition,
+            int partitions,
+            Function<String, V> decoder,
+            boolean rawPayloads) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("dictCode", cfg.getCode())
+                .addValue("partition", partition)
+                .addValue("partitions", partitions);
+
+        ItemsBuilder<V> result = ItemsBuilder.forDictionary(cfg, rawPayloads);
+        cursorReadTx.executeWithoutResult(status -> streamingJdbc.query(cfg.getPartitionedLoadSql(), params, rs -> {
+            readRow(rs, result::put, decoder);
+        }));
         return result;
     }
 
+    private <V> Map<String, V> loadByKeys(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            Collection<String> keys,
+            Function<String, V> decoder) {
+        Map<String, V> result = new LinkedHashMap<>();
+        if (keys.isEmpty()) {
+            return result;
+        }
+
+        String loadByKeysSql = cfg.getLoadByKeysSql();
+        String sql = loadByKeysSql != null && !loadByKeysSql.isBlank()
+                ? loadByKeysSql
+                : "select src.k, src.v from (" + cfg.getLoadSql() + ") src where src.k in (:keys)";
+        List<String> distinctKeys = List.copyOf(new LinkedHashSet<>(keys));
+        for (int from = 0; from < distinctKeys.size(); from += KEYS_PER_QUERY) {
+            List<String> chunk = distinctKeys.subList(from, Math.min(from + KEYS_PER_QUERY, distinctKeys.size()));
+            MapSqlParameterSource params = new MapSqlParameterSource()
+                    .addValue("tenantId", tenantId)
+                    .addValue("dictCode", cfg.getCode())
+                    .addValue("keys", chunk);
+            jdbc.query(sql, params, rs -> {
+                readRow(rs, result::put, decoder);
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public Optional<JsonNode> loadOne(String tenantId, String dictCode, String key) {
+        RefDataProperties.Dictionary cfg = dictionaryRegistry.required(dictCode);
+        if (cfg.getLoadOneSql() == null || cfg.getLoadOneSql().isBlank()) {
+            return Optional.ofNullable(loadByKeys(tenantId, dictCode, List.of(key)).get(key));
+        }
+
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("tenantId", tenantId)
+                .addValue("dictCode", cfg.getCode())
+                .addValue("key", key);
+        Map<String, JsonNode> result = new LinkedHashMap<>();
+        jdbc.query(cfg.getLoadOneSql(), params, rs -> {
+            readRow(rs, result);
+        });
+        return Optional.ofNullable(result.get(key));
+    }
+
     @Override
     public long getCommittedVersion(String tenantId, String dictCode) {
         return repository.currentCommittedVersion(tenantId, dictCode);
     }
 
+    @Override
+    public boolean hasCommittedDictionaries(String tenantId) {
+        return repository.hasAnyDictionary(tenantId);
+    }
+
+    @Override
+    public Optional<DictionaryPatchRecord<JsonNode>> loadChanges(String tenantId, String dictCode, long fromVersion) {
+        return loadChanges(tenantId, dictionaryRegistry.required(dictCode), fromVersion, this::decodeTree);
+    }
+
+    @Override
+    public Optional<DictionaryPatchRecord<byte[]>> loadChangesRaw(String tenantId, String dictCode, long fromVersion) {
+        return loadChanges(tenantId, dictionaryRegistry.required(dictCode), fromVersion, this::decodeRaw);
+    }
+
+    /**
+     * Same REPEATABLE READ transaction as the single-query {@link #loadCommitted}: a commit landing between the
+     * version lookup, the change-log read and the row fetch cannot put rows of a later version into the patch.
+     */
+    private <V> Optional<DictionaryPatchRecord<V>> loadChanges(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            long fromVersion,
+            Function<String, V> decoder) {
+        return consistentReadTx.execute(status -> {
+            long version = repository.currentCommittedVersion(tenantId, cfg.getCode());
+            return changedKeys(tenantId, cfg, fromVersion, version).map(keys ->
+                    new DictionaryPatchRecord<>(version, keys, loadByKeys(tenantId, cfg, keys, decoder)));
+        });
+    }
+
+    /**
+     * Keys touched by versions {@code (fromVersion, toVersion]}, or empty when the change log does not cover
+     * every version in the range.
+     */
+    private Optional<Set<String>> changedKeys(
+            String tenantId,
+            RefDataProperties.Dictionary cfg,
+            long fromVersion,
+            long toVersion) {
+        if (toVersion <= fromVersion) {
+            return Optional.of(Set.of());
+        }
+
+        List<DictionaryChangeRecord> changes =
+                repository.findDictionaryChanges(tenantId, cfg.getCode(), fromVersion, toVersion);
+        Set<Long> coveredVersions = new HashSet<>();
+        Set<String> keys = new LinkedHashSet<>();
+        for (DictionaryChangeRecord change : changes) {
+            coveredVersions.add(change.version());
+            keys.add(change.itemKey());
+        }
+        if (coveredVersions.size() != toVersion - fromVersion) {
+            return Optional.empty();
+        }
+        return Optional.of(keys);
+    }
+
     @Override
     public void applyDelta(String tenantId, String dictCode, List<UpdateItem> items, UpdateCommand event,
             long eventVersion) {
@@ -205,6 +477,51 @@ public class PostgresSqlProvider implements DictionaryProvider {
                 """, params);
     }
 
+    private void readRow(ResultSet rs, Map<String, JsonNode> result) throws SQLException {
+        readRow(rs, result::put, this::decodeTree);
+    }
+
+    private <V> void readRow(ResultSet rs, BiConsumer<String, V> result, Function<String, V> decoder)
+            throws SQLException {
+        String key = rs.getString("k");
+        if (key == null) {
+            return;
+        }
+        result.accept(key, decoder.apply(rs.getString("v")));
+    }
+
+    private JsonNode decodeTree(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return objectMapper.nullNode();
+        }
+        try {
+            return objectMapper.readTree(raw);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("loadSql must return JSON in column v", e);
+        }
+    }
+
+    /**
+     * Raw payloads are served byte for byte, so each one is checked by a streaming pass over its tokens; no tree is
+     * built.
+     */
+    private byte[] decodeRaw(String raw) {
+        if (raw == null || raw.isBlank()) {
+            return NULL_JSON;
+        }
+        String json = raw.strip();
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            parser.nextToken();
+            parser.skipChildren();
+            if (parser.nextToken() != null) {
+                throw new JsonParseException(parser, "Unexpected content after the JSON value");
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("loadSql must return JSON in column v", e);
+        }
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
     private String serialize(Object value) {
         try {
             return objectMapper.writeValueAsString(value);
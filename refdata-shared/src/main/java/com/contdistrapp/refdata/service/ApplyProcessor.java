@@ -1,8 +1,10 @@
 package com.contdistrapp.refdata.service;
 
+import com.contdistrapp.refdata.config.RefDataProperties;
 import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
 import com.contdistrapp.refdata.domain.EventType;
 import com.contdistrapp.refdata.domain.InvalidationEvent;
+import com.contdistrapp.refdata.domain.ReloadMode;
 import com.contdistrapp.refdata.domain.UpdateCommand;
 import com.contdistrapp.refdata.domain.UpdateItem;
 import com.contdistrapp.refdata.persistence.DictionaryMetaRecord;
@@ -16,7 +18,9 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 @ConditionalOnRefdataRole({"apply-service"})
@@ -27,17 +31,20 @@ public class ApplyProcessor {
     private final PlatformRepository repository;
     private final DictionaryProvider dictionaryProvider;
     private final DictionaryRegistry dictionaryRegistry;
+    private final RefDataProperties properties;
     private final ObjectMapper objectMapper;
 
     public ApplyProcessor(
             PlatformRepository repository,
             DictionaryProvider dictionaryProvider,
             DictionaryRegistry dictionaryRegistry,
+            RefDataProperties properties,
             ObjectMapper objectMapper
     ) {
         this.repository = repository;
         this.dictionaryProvider = dictionaryProvider;
         this.dictionaryRegistry = dictionaryRegistry;
+        this.properties = properties;
         this.objectMapper = objectMapper;
     }
 
@@ -103,11 +110,29 @@ public class ApplyProcessor {
     private void applyByType(UpdateCommand command, List<UpdateItem> items, long version) {
         if (command.eventType() == EventType.DELTA) {
             dictionaryProvider.applyDelta(command.tenantId(), command.dictCode(), items, command, version);
+            recordChangedKeys(command, items, version);
         } else {
             dictionaryProvider.applySnapshot(command.tenantId(), command.dictCode(), items, command, version);
         }
     }
 
+    private void recordChangedKeys(UpdateCommand command, List<UpdateItem> items, long version) {
+        RefDataProperties.Dictionary cfg = dictionaryRegistry.required(command.dictCode());
+        if (cfg.getReloadOnEvent() != ReloadMode.INCREMENTAL) {
+            return;
+        }
+        Set<String> keys = new LinkedHashSet<>();
+        for (UpdateItem item : items) {
+            keys.add(item.key());
+        }
+        repository.insertDictionaryChanges(command.tenantId(), command.dictCode(), version, keys);
+        // Query pods further behind than the lag window reload in full, so older entries are never read.
+        long retainFrom = version - properties.getCache().getIncrementalMaxLagVersions();
+        if (retainFrom > 0) {
+            repository.pruneDictionaryChanges(command.tenantId(), command.dictCode(), retainFrom);
+        }
+    }
+
     private String serializeInvalidation(UpdateCommand command, long version) {
         InvalidationEvent event = new InvalidationEvent(
                 command.eventId(),
@@ -0,0 +1,376 @@
+package com.contdistrapp.refdata.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable pod-cache content of one dictionary version. Encoded response bodies are memoized on the snapshot
+ * by {@link SnapshotEncoder} and are dropped together with it on the next swap. While a bucket or a page cursor
+ * holds the snapshot, the memoized bytes are charged to the cache memory budget, see {@link #hold}.
+ */
+public final class CacheSnapshot {
+
+    // Rough 64-bit JVM shallow sizes with compressed oops; the estimate only has to rank and bound buckets.
+    private static final long OBJECT_HEADER_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+    private static final long STRING_BYTES = 40;
+    private static final long CONTAINER_BYTES = 64;
+    private static final long ENTRY_BYTES = 32;
+    private static final long ARRAY_BYTES = 16;
+    private static final long NO_BASE = -1;
+
+    private final long version;
+    private final Map<String, JsonNode> items;
+    private final PayloadStore payloads;
+    private final long estimatedBytes;
+    // Version this snapshot was patched from while sharing its trie, and the bytes of the entries it replaced there.
+    private final long baseVersion;
+    private final long baseExclusiveBytes;
+
+    private final Map<String, EncodedPayload> encodedPayloads = new ConcurrentHashMap<>();
+    private volatile byte[] encodedAll;
+    private volatile byte[] encodedAllGzip;
+    private volatile String[] keyOrder;
+    private volatile ItemIndexes indexes;
+    private volatile SortedKeys sortedKeys;
+
+    // Guarded by memoLock: memoized bytes and the holders they are charged to.
+    private final Object memoLock = new Object();
+    private long memoizedBytes;
+    private int holders;
+    private LongConsumer budget;
+
+    public CacheSnapshot(long version, Map<String, JsonNode> items) {
+        this(version, items, null, estimate(items), NO_BASE, 0);
+    }
+
+    CacheSnapshot(long version, PayloadStore payloads, ObjectMapper objectMapper) {
+        this(version, new RawJsonItems(payloads, objectMapper), payloads, payloads.estimatedBytes(), NO_BASE, 0);
+    }
+
+    private CacheSnapshot(long version, Map<String, JsonNode> items, PayloadStore payloads, long estimatedBytes,
+                          long baseVersion, long baseExclusiveBytes) {
+        this.version = version;
+        this.items = items;
+        this.payloads = payloads;
+        this.estimatedBytes = estimatedBytes;
+        this.baseVersion = baseVersion;
+        this.baseExclusiveBytes = baseExclusiveBytes;
+    }
+
+    /**
+     * Snapshot that keeps payloads as the UTF-8 JSON bytes read from the database; {@link #items()} parses a value
+     * only when it is read.
+     */
+    public static CacheSnapshot raw(long version, Map<String, byte[]> rawPayloads, ObjectMapper objectMapper) {
+        return new CacheSnapshot(version, new HeapPayloadStore(rawPayloads), objectMapper);
+    }
+
+    /**
+     * Raw snapshot packed outside the Java heap, see {@link OffHeapPayloadStore}.
+     */
+    public static CacheSnapshot offHeap(long version, Map<String, byte[]> rawPayloads, ObjectMapper objectMapper) {
+        return new CacheSnapshot(version, OffHeapPayloadStore.of(rawPayloads), objectMapper);
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public Map<String, JsonNode> items() {
+        return items;
+    }
+
+    /**
+     * Approximate retained heap of the items, computed once when the snapshot is built. Memoized encodings are
+     * not included, see {@link #memoizedBytes}.
+     */
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Version {@code targetVersion} built from this one with {@code changed} keys replaced by {@code loaded} trees
+     * or removed when absent. Items held in a {@link PersistentHashMap} share every untouched node with this
+     * version; the size estimate is adjusted by the changed entries only.
+     */
+    CacheSnapshot patchedItems(long targetVersion, Set<String> changed, Map<String, JsonNode> loaded) {
+        if (items instanceof ColumnarItems columnar) {
+            return new CacheSnapshot(targetVersion, columnar.patched(changed, loaded));
+        }
+        if (items instanceof LongKeyMap<JsonNode> longKeyed) {
+            return new CacheSnapshot(targetVersion, longKeyed.patched(changed, loaded));
+        }
+        if (!(items instanceof PersistentHashMap<JsonNode> persistent)) {
+            return new CacheSnapshot(targetVersion, PersistentHashMap.of(items).patched(changed, loaded));
+        }
+        long replacedBytes = 0;
+        long addedBytes = 0;
+        for (String changedKey : changed) {
+            JsonNode previous = persistent.get(changedKey);
+            if (previous != null) {
+                replacedBytes += estimateEntry(changedKey, previous);
+            }
+            JsonNode value = loaded.get(changedKey);
+            if (value != null) {
+                addedBytes += estimateEntry(changedKey, value);
+            }
+        }
+        return new CacheSnapshot(targetVersion, persistent.patched(changed, loaded), null,
+                estimatedBytes - replacedBytes + addedBytes, version, replacedBytes);
+    }
+
+    /**
+     * Raw counterpart of {@link #patchedItems}; only valid when {@link #payloads()} is not {@code null}.
+     */
+    CacheSnapshot patchedPayloads(long targetVersion, Set<String> changed, Map<String, byte[]> loaded,
+                                  ObjectMapper objectMapper) {
+        PayloadStore next = payloads.patched(changed, loaded);
+        if (payloads instanceof OffHeapPayloadStore offHeap) {
+            return new CacheSnapshot(targetVersion, new RawJsonItems(next, objectMapper), next, next.estimatedBytes(),
+                    version, offHeap.bytesNotSharedWith((OffHeapPayloadStore) next));
+        }
+        if (!(payloads instanceof HeapPayloadStore heap) || !heap.persistent()) {
+            return new CacheSnapshot(targetVersion, next, objectMapper);
+        }
+        long replacedBytes = 0;
+        for (String changedKey : changed) {
+            ByteBuffer previous = payloads.payload(changedKey);
+            if (previous != null) {
+                replacedBytes += estimateRawEntry(changedKey, previous.remaining());
+            }
+        }
+        return new CacheSnapshot(targetVersion, new RawJsonItems(next, objectMapper), next, next.estimatedBytes(),
+                version, replacedBytes);
+    }
+
+    /**
+     * Heap this snapshot holds beyond the {@code newer} version of the same bucket: the entries {@code newer}
+     * replaced when it was patched from this snapshot, otherwise the whole estimate.
+     */
+    long bytesNotSharedWith(CacheSnapshot newer) {
+        return newer.baseVersion == version ? newer.baseExclusiveBytes : estimatedBytes;
+    }
+
+    /**
+     * @return payloads as stored bytes, or {@code null} for a snapshot of parsed trees
+     */
+    PayloadStore payloads() {
+        return payloads;
+    }
+
+    EncodedPayload encodedPayload(String key, Function<String, EncodedPayload> encoder) {
+        return encodedPayloads.computeIfAbsent(key, k -> {
+            EncodedPayload encoded = encoder.apply(k);
+            memoized(ENTRY_BYTES + estimate(k) + OBJECT_HEADER_BYTES + ARRAY_BYTES + encoded.json().length
+                    + estimate(encoded.etag()));
+            return encoded;
+        });
+    }
+
+    byte[] encodedAll() {
+        return encodedAll;
+    }
+
+    void encodedAll(byte[] encodedAll) {
+        this.encodedAll = encodedAll;
+        memoized(ARRAY_BYTES + encodedAll.length);
+    }
+
+    byte[] encodedAllGzip() {
+        return encodedAllGzip;
+    }
+
+    void encodedAllGzip(byte[] encodedAllGzip) {
+        this.encodedAllGzip = encodedAllGzip;
+        memoized(ARRAY_BYTES + encodedAllGzip.length);
+    }
+
+    /**
+     * Registers a holder of this snapshot, a bucket that publishes or retains it or a page cursor pinning it. The
+     * first holder charges the memoized bytes to {@code budget}, later memoization is charged as it happens, and
+     * the last {@link #release} returns them.
+     */
+    void hold(LongConsumer budget) {
+        synchronized (memoLock) {
+            if (holders++ == 0) {
+                this.budget = budget;
+                budget.accept(memoizedBytes);
+            }
+        }
+    }
+
+    void release() {
+        synchronized (memoLock) {
+            if (holders == 0) {
+                return;
+            }
+            if (--holders == 0) {
+                budget.accept(-memoizedBytes);
+                budget = null;
+            }
+        }
+    }
+
+    long memoizedBytes() {
+        synchronized (memoLock) {
+            return memoizedBytes;
+        }
+    }
+
+    private void memoized(long bytes) {
+        synchronized (memoLock) {
+            memoizedBytes += bytes;
+            if (budget != null) {
+                budget.accept(bytes);
+            }
+        }
+    }
+
+    /**
+     * @return secondary indexes, set once before the snapshot is published; {@code null} for snapshots that are
+     * never published to a bucket, such as wrapped fallback reads
+     */
+    ItemIndexes indexes() {
+        return indexes;
+    }
+
+    void indexes(ItemIndexes indexes) {
+        this.indexes = indexes;
+    }
+
+    /**
+     * @return sorted key index of a {@code sorted-keys} dictionary, set once before the snapshot is published
+     */
+    SortedKeys sortedKeys() {
+        return sortedKeys;
+    }
+
+    void sortedKeys(SortedKeys sortedKeys) {
+        this.sortedKeys = sortedKeys;
+    }
+
+    long indexBytes() {
+        ItemIndexes currentIndexes = indexes;
+        SortedKeys currentSortedKeys = sortedKeys;
+        return (currentIndexes == null ? 0 : currentIndexes.estimatedBytes())
+                + (currentSortedKeys == null ? 0 : currentSortedKeys.estimatedBytes());
+    }
+
+    /**
+     * Item keys in the iteration order of this snapshot, built on the first paged read; a page cursor is an offset
+     * into this array.
+     */
+    public String[] keyOrder() {
+        String[] keys = keyOrder;
+        if (keys == null) {
+            synchronized (this) {
+                keys = keyOrder;
+                if (keys == null) {
+                    keys = items.keySet().toArray(new String[0]);
+                    keyOrder = keys;
+                    // Counted with the key strings, which LONG and off-heap snapshots format on iteration.
+                    long bytes = ARRAY_BYTES + keys.length * REFERENCE_BYTES;
+                    for (String key : keys) {
+                        bytes += estimate(key);
+                    }
+                    memoized(bytes);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static long estimate(Map<String, JsonNode> items) {
+        if (items instanceof LongKeyMap<JsonNode> longKeyed) {
+            return longKeyed.estimatedBytes(CacheSnapshot::estimate);
+        }
+        if (items instanceof ColumnarItems columnar) {
+            return columnar.estimatedBytes();
+        }
+        long size = CONTAINER_BYTES;
+        for (Map.Entry<String, JsonNode> entry : items.entrySet()) {
+            size += estimateEntry(entry.getKey(), entry.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateEntry(String key, JsonNode value) {
+        return 2 * REFERENCE_BYTES + estimate(key) + estimate(value);
+    }
+
+    static long estimateRawEntry(String key, int payloadLength) {
+        return 2 * REFERENCE_BYTES + estimate(key) + OBJECT_HEADER_BYTES + payloadLength;
+    }
+
+    static long estimateRaw(Map<String, byte[]> rawPayloads) {
+        if (rawPayloads instanceof LongKeyMap<byte[]> longKeyed) {
+            return longKeyed.estimatedBytes(payload -> OBJECT_HEADER_BYTES + payload.length);
+        }
+        long size = CONTAINER_BYTES;
+        for (Map.Entry<String, byte[]> entry : rawPayloads.entrySet()) {
+            size += estimateRawEntry(entry.getKey(), entry.getValue().length);
+        }
+        return size;
+    }
+
+    static long estimate(JsonNode node) {
+        if (node == null) {
+            return 0;
+        }
+        if (node.isObject()) {
+            long size = OBJECT_HEADER_BYTES + CONTAINER_BYTES;
+            for (Iterator<Map.Entry<String, JsonNode>> fields = node.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                size += ENTRY_BYTES + estimate(field.getKey()) + estimate(field.getValue());
+            }
+            return size;
+        }
+        if (node.isArray()) {
+            long size = OBJECT_HEADER_BYTES + CONTAINER_BYTES;
+            for (JsonNode element : node) {
+                size += REFERENCE_BYTES + estimate(element);
+            }
+            return size;
+        }
+        if (node.isTextual()) {
+            return OBJECT_HEADER_BYTES + estimate(node.textValue());
+        }
+        return OBJECT_HEADER_BYTES + 16;
+    }
+
+    static long estimate(String value) {
+        return STRING_BYTES + value.length();
+    }
+
+    record EncodedPayload(byte[] json, String etag) {
+
+        /**
+         * Leading bytes of the SHA-256 of the payload that make up its entity tag.
+         */
+        static final int ETAG_BYTES = 16;
+
+        static MessageDigest sha256() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
+
+        static String etag(byte[] digest, int offset) {
+            return "\"" + HexFormat.of().formatHex(digest, offset, offset + ETAG_BYTES) + "\"";
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnRefdataRole({"query-api"})
+public class CacheWarmupHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmupService warmupService;
+
+    public CacheWarmupHealthIndicator(CacheWarmupService warmupService) {
+        this.warmupService = warmupService;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = warmupService.isReady() ? Health.up() : Health.down();
+        return builder
+                .withDetail("dictionaries", warmupService.total())
+                .withDetail("loaded", warmupService.loaded())
+                .withDetail("retrying", warmupService.retrying())
+                .build();
+    }
+}
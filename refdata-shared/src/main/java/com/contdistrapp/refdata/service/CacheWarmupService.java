@@ -0,0 +1,169 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.contdistrapp.refdata.persistence.DictionaryVersionRecord;
+import com.contdistrapp.refdata.persistence.PlatformRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Loads the most recently updated dictionaries of the configured tenants into the pod cache at startup, so the
+ * first reads after a rollout do not pay a synchronous {@code loadAll}. {@link CacheWarmupHealthIndicator} keeps
+ * readiness DOWN until {@code readyFraction} of them is resident in the cache. Listing the targets and loading each
+ * of them are retried with exponential backoff until the pod is ready; after that, reads load what is missing.
+ */
+@Component
+@ConditionalOnRefdataRole({"query-api"})
+public class CacheWarmupService {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheWarmupService.class);
+
+    private final PlatformRepository repository;
+    private final DictionaryRegistry dictionaryRegistry;
+    private final QueryService queryService;
+    private final TenantOwnership tenantOwnership;
+    private final RefDataProperties.Warmup settings;
+
+    private final Set<DictionaryVersionRecord> retrying = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean ready = new AtomicBoolean();
+    private final ScheduledExecutorService retryTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setName("cache-warmup-retry");
+        t.setDaemon(true);
+        return t;
+    });
+    // Null until the targets were listed.
+    private volatile List<DictionaryVersionRecord> targets;
+
+    public CacheWarmupService(
+            PlatformRepository repository,
+            DictionaryRegistry dictionaryRegistry,
+            QueryService queryService,
+            TenantOwnership tenantOwnership,
+            RefDataProperties properties) {
+        this.repository = repository;
+        this.dictionaryRegistry = dictionaryRegistry;
+        this.queryService = queryService;
+        this.tenantOwnership = tenantOwnership;
+        this.settings = properties.getCache().getWarmup();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!settings.isEnabled()) {
+            targets = List.of();
+            ready.set(true);
+            return;
+        }
+        listTargets(0);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        retryTimer.shutdownNow();
+    }
+
+    /**
+     * Ready once {@code readyFraction} of the targets is resident; stays ready afterwards, because later evictions
+     * under the memory budget are regular cache behaviour, not a warm-up failure.
+     */
+    public boolean isReady() {
+        if (ready.get()) {
+            return true;
+        }
+        List<DictionaryVersionRecord> current = targets;
+        if (current == null || resident(current) < Math.ceil(current.size() * settings.getReadyFraction())) {
+            return false;
+        }
+        if (ready.compareAndSet(false, true)) {
+            log.info("Cache warm-up finished loaded={} retrying={}", resident(current), retrying.size());
+        }
+        return true;
+    }
+
+    public int total() {
+        List<DictionaryVersionRecord> current = targets;
+        return current == null ? 0 : current.size();
+    }
+
+    public int loaded() {
+        List<DictionaryVersionRecord> current = targets;
+        return current == null ? 0 : resident(current);
+    }
+
+    public int retrying() {
+        return retrying.size();
+    }
+
+    private void listTargets(int attempt) {
+        List<DictionaryVersionRecord> listed;
+        try {
+            listed = repository
+                    .findRecentDictionaryVersions(settings.getTenants(), settings.getMaxDictionaries())
+                    .stream()
+                    .filter(record -> dictionaryRegistry.isConfigured(record.dictCode()))
+                    .filter(record -> tenantOwnership.owns(record.tenantId()))
+                    .toList();
+        } catch (RuntimeException e) {
+            log.warn("Cache warm-up could not list dictionaries, retrying attempt={}", attempt + 1, e);
+            retry(() -> listTargets(attempt + 1), attempt);
+            return;
+        }
+        targets = listed;
+        log.info("Cache warm-up started dictionaries={}", listed.size());
+        listed.forEach(target -> load(target, 0));
+    }
+
+    private void load(DictionaryVersionRecord target, int attempt) {
+        queryService.warmUp(target.tenantId(), target.dictCode()).whenComplete((resident, ex) -> {
+            if (ex == null && Boolean.TRUE.equals(resident)) {
+                retrying.remove(target);
+                isReady();
+                return;
+            }
+            if (isReady()) {
+                retrying.remove(target);
+                log.warn("Cache warm-up gave up tenant={} dict={}, the pod is ready without it",
+                        target.tenantId(), target.dictCode(), ex);
+                return;
+            }
+            retrying.add(target);
+            log.warn("Cache warm-up failed tenant={} dict={}, retrying attempt={}",
+                    target.tenantId(), target.dictCode(), attempt + 1, ex);
+            retry(() -> load(target, attempt + 1), attempt);
+        });
+    }
+
+    private void retry(Runnable task, int attempt) {
+        long delayMs = Math.min(settings.getRetryMaxMs(), settings.getRetryInitialMs() << Math.min(attempt, 20));
+        try {
+            retryTimer.schedule(task, delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shuttingDown) {
+            log.debug("Cache warm-up retry dropped, the pod is shutting down");
+        }
+    }
+
+    private int resident(List<DictionaryVersionRecord> current) {
+        int resident = 0;
+        for (DictionaryVersionRecord target : current) {
+            if (queryService.isResident(target.tenantId(), target.dictCode())) {
+                resident++;
+            }
+        }
+        return resident;
+    }
+}
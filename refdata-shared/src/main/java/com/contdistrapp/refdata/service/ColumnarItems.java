@@ -0,0 +1,638 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.domain.FieldType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.BooleanNode;
+import com.fasterxml.jackson.databind.node.DoubleNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.LongNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Read-only {@code Map<String, JsonNode>} of a {@code snapshot-format: COLUMNAR} dictionary. A row whose payload is
+ * an object with exactly the schema fields is stored as one slot per field in primitive column arrays, strings as
+ * codes into a per-column dictionary; {@link #get(Object)} rebuilds the object on every call. Rows that do not fit
+ * the schema are kept as trees.
+ *
+ * <p>A rebuilt object lists its fields in schema order whatever order the stored payload had, so its serialized
+ * bytes, and the entity tag taken from them, can differ from the same row served by a {@code RAW} or {@code TREE}
+ * snapshot.
+ */
+final class ColumnarItems extends AbstractMap<String, JsonNode> {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final String[] fieldNames;
+    private final Column[] columns;
+    // Sorted; row i of every column belongs to keys[i].
+    private final String[] keys;
+    private final Map<String, JsonNode> nonConforming;
+
+    private ColumnarItems(String[] fieldNames, Column[] columns, String[] keys, Map<String, JsonNode> nonConforming) {
+        this.fieldNames = fieldNames;
+        this.columns = columns;
+        this.keys = keys;
+        this.nonConforming = nonConforming;
+    }
+
+    /**
+     * Parses one raw row at a time, so only the current row exists as a tree while the columns are filled.
+     */
+    static ColumnarItems decode(
+            List<RefDataProperties.SchemaField> schema,
+            Map<String, byte[]> rows,
+            ObjectMapper objectMapper) {
+        Builder builder = new Builder(schema, rows.size());
+        rows.forEach((key, payload) -> builder.put(key, parse(objectMapper, payload)));
+        return builder.build();
+    }
+
+    /**
+     * Fills the columns straight from a stream of rows in any key order, e.g. a full load, without collecting the
+     * rows first. A later row replaces an earlier one with the same key.
+     */
+    static ItemsBuilder<JsonNode> builder(List<RefDataProperties.SchemaField> schema) {
+        return new Builder(schema, INITIAL_CAPACITY);
+    }
+
+    @Override
+    public int size() {
+        return keys.length + nonConforming.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String value && (row(value) >= 0 || nonConforming.containsKey(value));
+    }
+
+    @Override
+    public JsonNode get(Object key) {
+        if (!(key instanceof String value)) {
+            return null;
+        }
+        int row = row(value);
+        return row >= 0 ? rowNode(row) : nonConforming.get(value);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new RowIterator<>() {
+                    @Override
+                    String row(int row) {
+                        return keys[row];
+                    }
+
+                    @Override
+                    String nonConforming(Entry<String, JsonNode> entry) {
+                        return entry.getKey();
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return ColumnarItems.this.size();
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<String, JsonNode>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, JsonNode>> iterator() {
+                return new RowIterator<>() {
+                    @Override
+                    Entry<String, JsonNode> row(int row) {
+                        return new SimpleImmutableEntry<>(keys[row], rowNode(row));
+                    }
+
+                    @Override
+                    Entry<String, JsonNode> nonConforming(Entry<String, JsonNode> entry) {
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ColumnarItems.this.size();
+            }
+        };
+    }
+
+    /**
+     * New items with {@code changed} keys replaced by {@code loaded} values or removed when absent. Unchanged rows
+     * are copied column by column without rebuilding their objects.
+     */
+    ColumnarItems patched(Set<String> changed, Map<String, JsonNode> loaded) {
+        String[] loadedKeys = loaded.keySet().toArray(String[]::new);
+        Arrays.sort(loadedKeys);
+        Builder builder = new Builder(this, keys.length + loadedKeys.length);
+        nonConforming.forEach((key, value) -> {
+            if (!changed.contains(key)) {
+                builder.nonConforming.put(key, value);
+            }
+        });
+
+        int row = 0;
+        int next = 0;
+        while (row < keys.length || next < loadedKeys.length) {
+            if (row < keys.length && changed.contains(keys[row])) {
+                row++;
+            } else if (next >= loadedKeys.length
+                    || (row < keys.length && keys[row].compareTo(loadedKeys[next]) < 0)) {
+                builder.copy(this, row++);
+            } else {
+                builder.put(loadedKeys[next], loaded.get(loadedKeys[next]));
+                next++;
+            }
+        }
+        return builder.build();
+    }
+
+    long estimatedBytes() {
+        long bytes = 64 + keys.length * 4L;
+        for (String key : keys) {
+            bytes += CacheSnapshot.estimate(key);
+        }
+        for (Column column : columns) {
+            bytes += column.estimatedBytes();
+        }
+        for (Entry<String, JsonNode> entry : nonConforming.entrySet()) {
+            bytes += 32 + CacheSnapshot.estimate(entry.getKey()) + CacheSnapshot.estimate(entry.getValue());
+        }
+        return bytes;
+    }
+
+    private int row(String key) {
+        return Arrays.binarySearch(keys, key);
+    }
+
+    private ObjectNode rowNode(int row) {
+        ObjectNode node = JsonNodeFactory.instance.objectNode();
+        for (int i = 0; i < columns.length; i++) {
+            node.set(fieldNames[i], columns[i].value(row));
+        }
+        return node;
+    }
+
+    private static JsonNode parse(ObjectMapper objectMapper, byte[] payload) {
+        try {
+            return objectMapper.readTree(payload);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Dictionary payload is not valid JSON", e);
+        }
+    }
+
+    private abstract class RowIterator<T> implements Iterator<T> {
+
+        private final Iterator<Entry<String, JsonNode>> nonConformingEntries = nonConforming.entrySet().iterator();
+        private int next;
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length || nonConformingEntries.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (next < keys.length) {
+                return row(next++);
+            }
+            if (!nonConformingEntries.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return nonConforming(nonConformingEntries.next());
+        }
+
+        abstract T row(int row);
+
+        abstract T nonConforming(Entry<String, JsonNode> entry);
+    }
+
+    private static final class Builder implements ItemsBuilder<JsonNode> {
+
+        private final String[] fieldNames;
+        private Column[] columns;
+        private final List<String> keys;
+        private final Map<String, JsonNode> nonConforming = new HashMap<>();
+        // Whether rows arrived in strictly ascending key order; otherwise build() sorts them.
+        private boolean ordered = true;
+
+        private Builder(List<RefDataProperties.SchemaField> schema, int capacity) {
+            this.fieldNames = new String[schema.size()];
+            this.columns = new Column[schema.size()];
+            for (int i = 0; i < schema.size(); i++) {
+                fieldNames[i] = schema.get(i).getName();
+                columns[i] = Column.of(schema.get(i).getType(), capacity);
+            }
+            this.keys = new ArrayList<>(capacity);
+        }
+
+        private Builder(ColumnarItems template, int capacity) {
+            this.fieldNames = template.fieldNames;
+            this.columns = new Column[template.columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = Column.of(template.columns[i].type(), capacity);
+            }
+            this.keys = new ArrayList<>(capacity);
+        }
+
+        @Override
+        public void put(String key, JsonNode payload) {
+            if (!conforms(payload)) {
+                nonConforming.put(key, payload);
+                return;
+            }
+            if (!nonConforming.isEmpty()) {
+                nonConforming.remove(key);
+            }
+            if (ordered && !keys.isEmpty() && keys.get(keys.size() - 1).compareTo(key) >= 0) {
+                ordered = false;
+            }
+            keys.add(key);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].append(payload.get(fieldNames[i]));
+            }
+        }
+
+        @Override
+        public int size() {
+            return keys.size() + nonConforming.size();
+        }
+
+        private void copy(ColumnarItems source, int row) {
+            keys.add(source.keys[row]);
+            for (int i = 0; i < columns.length; i++) {
+                columns[i].appendFrom(source.columns[i], row);
+            }
+        }
+
+        private boolean conforms(JsonNode payload) {
+            if (!payload.isObject() || payload.size() != columns.length) {
+                return false;
+            }
+            for (int i = 0; i < columns.length; i++) {
+                JsonNode value = payload.get(fieldNames[i]);
+                if (value == null || !columns[i].accepts(value)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ColumnarItems build() {
+            String[] rowKeys = ordered ? keys.toArray(String[]::new) : sortRows();
+            for (Column column : columns) {
+                column.trim();
+            }
+            return new ColumnarItems(fieldNames, columns, rowKeys,
+                    nonConforming.isEmpty() ? Map.of() : Collections.unmodifiableMap(nonConforming));
+        }
+
+        /**
+         * Moves the rows into key order, keeping the last row of every key unless a later row of that key did not
+         * fit the schema.
+         */
+        private String[] sortRows() {
+            Integer[] order = new Integer[keys.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            // Stable, so rows of one key stay in arrival order.
+            Arrays.sort(order, (left, right) -> keys.get(left).compareTo(keys.get(right)));
+
+            List<String> sortedKeys = new ArrayList<>(order.length);
+            Column[] sorted = new Column[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                sorted[i] = Column.of(columns[i].type(), order.length);
+            }
+            for (int i = 0; i < order.length; i++) {
+                int row = order[i];
+                String key = keys.get(row);
+                boolean replaced = i + 1 < order.length && keys.get(order[i + 1]).equals(key);
+                if (replaced || nonConforming.containsKey(key)) {
+                    continue;
+                }
+                sortedKeys.add(key);
+                for (int c = 0; c < columns.length; c++) {
+                    sorted[c].appendFrom(columns[c], row);
+                }
+            }
+            columns = sorted;
+            return sortedKeys.toArray(String[]::new);
+        }
+    }
+
+    /**
+     * Values of one field; written only by the {@link Builder} that created it.
+     */
+    private abstract static class Column {
+
+        final BitSet nulls = new BitSet();
+        int size;
+
+        static Column of(FieldType type, int capacity) {
+            return switch (type) {
+                case LONG -> new LongColumn(capacity);
+                case DOUBLE -> new DoubleColumn(capacity);
+                case BOOLEAN -> new BooleanColumn();
+                case STRING -> new StringColumn(capacity);
+            };
+        }
+
+        final boolean accepts(JsonNode value) {
+            return value.isNull() || acceptsValue(value);
+        }
+
+        final void append(JsonNode value) {
+            ensureCapacity(size + 1);
+            if (value.isNull()) {
+                nulls.set(size);
+            } else {
+                appendValue(value);
+            }
+            size++;
+        }
+
+        final void appendFrom(Column source, int row) {
+            ensureCapacity(size + 1);
+            if (source.nulls.get(row)) {
+                nulls.set(size);
+            } else {
+                copyValue(source, row);
+            }
+            size++;
+        }
+
+        final JsonNode value(int row) {
+            return nulls.get(row) ? NullNode.getInstance() : valueAt(row);
+        }
+
+        abstract FieldType type();
+
+        abstract boolean acceptsValue(JsonNode value);
+
+        abstract void appendValue(JsonNode value);
+
+        abstract void copyValue(Column source, int row);
+
+        abstract JsonNode valueAt(int row);
+
+        abstract void ensureCapacity(int capacity);
+
+        abstract void trim();
+
+        abstract long estimatedBytes();
+    }
+
+    private static final class LongColumn extends Column {
+
+        private long[] values;
+
+        private LongColumn(int capacity) {
+            this.values = new long[capacity];
+        }
+
+        @Override
+        FieldType type() {
+            return FieldType.LONG;
+        }
+
+        @Override
+        boolean acceptsValue(JsonNode value) {
+            return value.isInt() || value.isLong();
+        }
+
+        @Override
+        void appendValue(JsonNode value) {
+            values[size] = value.longValue();
+        }
+
+        @Override
+        void copyValue(Column source, int row) {
+            values[size] = ((LongColumn) source).values[row];
+        }
+
+        @Override
+        JsonNode valueAt(int row) {
+            long value = values[row];
+            // Same node type the parser produces for the value.
+            return value == (int) value ? IntNode.valueOf((int) value) : LongNode.valueOf(value);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
+
+        @Override
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 16 + values.length * 8L;
+        }
+    }
+
+    private static final class DoubleColumn extends Column {
+
+        private double[] values;
+
+        private DoubleColumn(int capacity) {
+            this.values = new double[capacity];
+        }
+
+        @Override
+        FieldType type() {
+            return FieldType.DOUBLE;
+        }
+
+        @Override
+        boolean acceptsValue(JsonNode value) {
+            return value.isDouble();
+        }
+
+        @Override
+        void appendValue(JsonNode value) {
+            values[size] = value.doubleValue();
+        }
+
+        @Override
+        void copyValue(Column source, int row) {
+            values[size] = ((DoubleColumn) source).values[row];
+        }
+
+        @Override
+        JsonNode valueAt(int row) {
+            return DoubleNode.valueOf(values[row]);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+            }
+        }
+
+        @Override
+        void trim() {
+            values = Arrays.copyOf(values, size);
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 16 + values.length * 8L;
+        }
+    }
+
+    private static final class BooleanColumn extends Column {
+
+        private final BitSet values = new BitSet();
+
+        @Override
+        FieldType type() {
+            return FieldType.BOOLEAN;
+        }
+
+        @Override
+        boolean acceptsValue(JsonNode value) {
+            return value.isBoolean();
+        }
+
+        @Override
+        void appendValue(JsonNode value) {
+            values.set(size, value.booleanValue());
+        }
+
+        @Override
+        void copyValue(Column source, int row) {
+            values.set(size, ((BooleanColumn) source).values.get(row));
+        }
+
+        @Override
+        JsonNode valueAt(int row) {
+            return BooleanNode.valueOf(values.get(row));
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+        }
+
+        @Override
+        void trim() {
+        }
+
+        @Override
+        long estimatedBytes() {
+            return 32 + size / 8;
+        }
+    }
+
+    private static final class StringColumn extends Column {
+
+        private int[] codes;
+        private String[] dictionary;
+        private Map<String, Integer> codeByValue = new HashMap<>();
+        private List<String> values = new ArrayList<>();
+
+        private StringColumn(int capacity) {
+            this.codes = new int[capacity];
+        }
+
+        @Override
+        FieldType type() {
+            return FieldType.STRING;
+        }
+
+        @Override
+        boolean acceptsValue(JsonNode value) {
+            return value.isTextual();
+        }
+
+        @Override
+        void appendValue(JsonNode value) {
+            codes[size] = code(value.textValue());
+        }
+
+        @Override
+        void copyValue(Column source, int row) {
+            StringColumn strings = (StringColumn) source;
+            codes[size] = code(strings.stringAt(row));
+        }
+
+        @Override
+        JsonNode valueAt(int row) {
+            return TextNode.valueOf(dictionary[codes[row]]);
+        }
+
+        private String stringAt(int row) {
+            return dictionary != null ? dictionary[codes[row]] : values.get(codes[row]);
+        }
+
+        @Override
+        void ensureCapacity(int capacity) {
+            if (capacity > codes.length) {
+                codes = Arrays.copyOf(codes, Math.max(capacity, codes.length * 2));
+            }
+        }
+
+        @Override
+        void trim() {
+            codes = Arrays.copyOf(codes, size);
+            dictionary = values.toArray(String[]::new);
+            codeByValue = null;
+            values = null;
+        }
+
+        @Override
+        long estimatedBytes() {
+            long bytes = 32 + codes.length * 4L + dictionary.length * 4L;
+            for (String value : dictionary) {
+                bytes += CacheSnapshot.estimate(value);
+            }
+            return bytes;
+        }
+
+        private int code(String value) {
+            return codeByValue.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+}
@@ -1,17 +1,26 @@
 package com.contdistrapp.refdata.service;
 
+import com.contdistrapp.refdata.config.RefDataProperties;
 import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
 import com.contdistrapp.refdata.domain.UpdateCommand;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
+/**
+ * Applies commands of one partition strictly in order on a dedicated single-thread executor. With
+ * {@code spring.threads.virtual.enabled} that thread is virtual, so idle partitions cost no platform
+ * thread; in both modes at most {@code refdata.dispatch.max-concurrent-applies} partitions hit the database at once.
+ */
 @Component
 @ConditionalOnRefdataRole({"apply-service"})
 public class CommandDispatcher {
@@ -19,29 +28,28 @@ public class CommandDispatcher {
     private static final Logger log = LoggerFactory.getLogger(CommandDispatcher.class);
 
     private final ApplyProcessor applyProcessor;
+    private final boolean virtualThreads;
+    private final Semaphore applyPermits;
     private final Map<String, ExecutorService> partitionExecutors = new ConcurrentHashMap<>();
 
-    public CommandDispatcher(ApplyProcessor applyProcessor) {
+    public CommandDispatcher(ApplyProcessor applyProcessor, RefDataProperties properties, Environment environment) {
         this.applyProcessor = applyProcessor;
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        this.applyPermits = new Semaphore(properties.getDispatch().getMaxConcurrentApplies());
     }
 
     public void dispatch(UpdateCommand command) {
-        ExecutorService executor = partitionExecutors.computeIfAbsent(
-                command.partitionKey(),
-                key -> Executors.newSingleThreadExecutor(r -> {
-                    Thread t = new Thread(r);
-                    t.setName("apply-" + key.replace(':', '_'));
-                    t.setDaemon(true);
-                    return t;
-                })
-        );
+        ExecutorService executor = partitionExecutors.computeIfAbsent(command.partitionKey(), this::partitionExecutor);
 
         executor.submit(() -> {
+            applyPermits.acquireUninterruptibly();
             try {
                 applyProcessor.process(command);
             } catch (Exception ex) {
                 log.error("Failed to process eventId={} tenant={} dict={}", command.eventId(), command.tenantId(), command.dictCode(), ex);
                 applyProcessor.fail(command, ex.getMessage());
+            } finally {
+                applyPermits.release();
             }
         });
     }
@@ -52,4 +60,17 @@ public class CommandDispatcher {
             executor.shutdown();
         }
     }
+
+    private ExecutorService partitionExecutor(String partitionKey) {
+        String threadName = "apply-" + partitionKey.replace(':', '_');
+        if (virtualThreads) {
+            return Executors.newSingleThreadExecutor(Thread.ofVirtual().name(threadName + "-", 0).factory());
+        }
+        return Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName(threadName);
+            t.setDaemon(true);
+            return t;
+        });
+    }
 }
@@ -0,0 +1,83 @@
+package com.contdistrapp.refdata.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Immutable consistent-hash ring: every member owns {@code virtualNodes} points and a key belongs to the first point
+ * at or after its hash, so adding or removing one of {@code n} members moves about {@code 1/n} of the keys. The hash
+ * is computed from UTF-8 bytes only, so all pods with the same member list agree on every owner.
+ */
+final class ConsistentHashRing {
+
+    private final long[] points;
+    private final String[] owners;
+    private final Set<String> members;
+
+    private ConsistentHashRing(long[] points, String[] owners, Set<String> members) {
+        this.points = points;
+        this.owners = owners;
+        this.members = members;
+    }
+
+    static ConsistentHashRing of(Collection<String> members, int virtualNodes) {
+        Set<String> sorted = new TreeSet<>(members);
+        TreeMap<Long, String> ring = new TreeMap<>();
+        for (String member : sorted) {
+            for (int i = 0; i < virtualNodes; i++) {
+                // On a point collision the member iterated first keeps it, which is the same on every pod.
+                ring.putIfAbsent(hash(member + "#" + i), member);
+            }
+        }
+        long[] points = new long[ring.size()];
+        String[] owners = new String[ring.size()];
+        int index = 0;
+        for (Map.Entry<Long, String> point : ring.entrySet()) {
+            points[index] = point.getKey();
+            owners[index] = point.getValue();
+            index++;
+        }
+        return new ConsistentHashRing(points, owners, Set.copyOf(sorted));
+    }
+
+    /**
+     * @return {@code null} when the ring has no members
+     */
+    String owner(String key) {
+        if (points.length == 0) {
+            return null;
+        }
+        int index = Arrays.binarySearch(points, hash(key));
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return owners[index == points.length ? 0 : index];
+    }
+
+    Set<String> members() {
+        return members;
+    }
+
+    /**
+     * FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer, which spreads the short, similar strings
+     * used for tenant ids and virtual nodes over the whole {@code long} range.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
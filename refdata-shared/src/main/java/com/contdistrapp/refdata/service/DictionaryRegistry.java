@@ -1,11 +1,17 @@
 package com.contdistrapp.refdata.service;
 
 import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.domain.KeyType;
+import com.contdistrapp.refdata.domain.SnapshotFormat;
 import com.contdistrapp.refdata.error.BadRequestException;
+import com.fasterxml.jackson.core.JsonPointer;
 import org.springframework.stereotype.Component;
 
+import java.util.HashSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 @Component
 public class DictionaryRegistry {
@@ -14,6 +20,11 @@ public class DictionaryRegistry {
 
     public DictionaryRegistry(RefDataProperties properties) {
         this.dictionaries = properties.dictionaryMap();
+        dictionaries.values().forEach(DictionaryRegistry::validate);
+    }
+
+    public boolean isConfigured(String dictCode) {
+        return dictCode != null && dictionaries.containsKey(dictCode.toUpperCase(Locale.ROOT));
     }
 
     public RefDataProperties.Dictionary required(String dictCode) {
@@ -26,4 +37,41 @@ public class DictionaryRegistry {
         }
         return cfg;
     }
+
+    /**
+     * @throws BadRequestException when the dictionary declares no index of that name
+     */
+    public RefDataProperties.IndexField requiredIndex(String dictCode, String indexName) {
+        RefDataProperties.Dictionary cfg = required(dictCode);
+        Optional<RefDataProperties.IndexField> index = cfg.getIndexes().stream()
+                .filter(field -> field.getName().equals(indexName))
+                .findFirst();
+        return index.orElseThrow(() ->
+                new BadRequestException("Dictionary " + cfg.getCode() + " has no index: " + indexName));
+    }
+
+    private static void validate(RefDataProperties.Dictionary dictionary) {
+        if (dictionary.getSnapshotFormat() == SnapshotFormat.COLUMNAR && dictionary.getSchema().isEmpty()) {
+            throw new IllegalStateException(
+                    "Dictionary " + dictionary.getCode() + " uses snapshot-format COLUMNAR without a schema");
+        }
+        if (dictionary.getSnapshotFormat() == SnapshotFormat.OFF_HEAP && dictionary.getKeyType() == KeyType.LONG) {
+            // Off-heap snapshots keep keys as loaded; LONG lookups use the canonical decimal form.
+            throw new IllegalStateException(
+                    "Dictionary " + dictionary.getCode() + " uses snapshot-format OFF_HEAP with key-type LONG");
+        }
+        Set<String> indexNames = new HashSet<>();
+        for (RefDataProperties.IndexField index : dictionary.getIndexes()) {
+            if (!indexNames.add(index.getName())) {
+                throw new IllegalStateException(
+                        "Dictionary " + dictionary.getCode() + " declares index " + index.getName() + " twice");
+            }
+            try {
+                JsonPointer.compile(index.getPath());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Dictionary " + dictionary.getCode() + " index " + index.getName()
+                        + " has an invalid JSON pointer: " + index.getPath(), e);
+            }
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.contdistrapp.refdata.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+final class HashItemsBuilder<V> implements ItemsBuilder<V> {
+
+    private final Map<String, V> items = new HashMap<>();
+
+    @Override
+    public void put(String key, V value) {
+        items.put(key, value);
+    }
+
+    @Override
+    public int size() {
+        return items.size();
+    }
+
+    @Override
+    public Map<String, V> build() {
+        return Collections.unmodifiableMap(items);
+    }
+}
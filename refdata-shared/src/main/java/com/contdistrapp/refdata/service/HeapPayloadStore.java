@@ -0,0 +1,86 @@
+package com.contdistrapp.refdata.service;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+final class HeapPayloadStore implements PayloadStore {
+
+    private final Map<String, byte[]> payloads;
+    private final long estimatedBytes;
+
+    HeapPayloadStore(Map<String, byte[]> payloads) {
+        this(payloads, CacheSnapshot.estimateRaw(payloads));
+    }
+
+    private HeapPayloadStore(Map<String, byte[]> payloads, long estimatedBytes) {
+        this.payloads = payloads;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    @Override
+    public int size() {
+        return payloads.size();
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return payloads.containsKey(key);
+    }
+
+    @Override
+    public ByteBuffer payload(String key) {
+        byte[] payload = payloads.get(key);
+        return payload == null ? null : ByteBuffer.wrap(payload);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return payloads.keySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, ByteBuffer> action) {
+        payloads.forEach((key, payload) -> action.accept(key, ByteBuffer.wrap(payload)));
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    @Override
+    public boolean onHeap() {
+        return true;
+    }
+
+    @Override
+    public PayloadStore patched(Set<String> changed, Map<String, byte[]> loaded) {
+        if (payloads instanceof LongKeyMap<byte[]> longKeyed) {
+            return new HeapPayloadStore(longKeyed.patched(changed, loaded));
+        }
+        if (!(payloads instanceof PersistentHashMap<byte[]> persistent)) {
+            return new HeapPayloadStore(PersistentHashMap.of(payloads).patched(changed, loaded));
+        }
+        long bytes = estimatedBytes;
+        for (String changedKey : changed) {
+            byte[] previous = persistent.get(changedKey);
+            if (previous != null) {
+                bytes -= CacheSnapshot.estimateRawEntry(changedKey, previous.length);
+            }
+            byte[] value = loaded.get(changedKey);
+            if (value != null) {
+                bytes += CacheSnapshot.estimateRawEntry(changedKey, value.length);
+            }
+        }
+        return new HeapPayloadStore(persistent.patched(changed, loaded), bytes);
+    }
+
+    /**
+     * {@code true} when {@link #patched} shares untouched entries with this store instead of copying them.
+     */
+    boolean persistent() {
+        return payloads instanceof PersistentHashMap<byte[]>;
+    }
+}
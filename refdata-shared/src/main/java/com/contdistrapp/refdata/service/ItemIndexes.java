@@ -0,0 +1,196 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.domain.FieldType;
+import com.contdistrapp.refdata.error.BadRequestException;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Secondary indexes of one snapshot version, declared by {@code indexes} of the dictionary: per index, the item keys
+ * grouped by the canonical text of the value at the index's JSON pointer. Items whose value is missing, {@code null}
+ * or of another type are not indexed. Postings are {@link PersistentHashMap}s, so the indexes of a patched snapshot
+ * touch only the postings of changed items and share the rest with the base version.
+ */
+final class ItemIndexes {
+
+    static final ItemIndexes NONE = new ItemIndexes(List.of(), Map.of(), 0);
+
+    // Trie slot of one posting, and posting map overhead plus value text per distinct value; see CacheSnapshot.
+    private static final long POSTING_BYTES = 24;
+    private static final long VALUE_BYTES = 104;
+    private static final PersistentHashMap<Boolean> NO_KEYS = PersistentHashMap.of(Map.of());
+
+    private final List<Index> indexes;
+    private final Map<String, PersistentHashMap<PersistentHashMap<Boolean>>> postings;
+    private final long estimatedBytes;
+
+    private ItemIndexes(
+            List<Index> indexes,
+            Map<String, PersistentHashMap<PersistentHashMap<Boolean>>> postings,
+            long estimatedBytes) {
+        this.indexes = indexes;
+        this.postings = postings;
+        this.estimatedBytes = estimatedBytes;
+    }
+
+    static ItemIndexes build(List<RefDataProperties.IndexField> fields, Map<String, JsonNode> items) {
+        if (fields.isEmpty()) {
+            return NONE;
+        }
+        List<Index> indexes = fields.stream().map(Index::of).toList();
+        List<Map<String, Map<String, Boolean>>> grouped = new ArrayList<>();
+        for (int i = 0; i < indexes.size(); i++) {
+            grouped.add(new HashMap<>());
+        }
+        items.forEach((key, item) -> {
+            for (int i = 0; i < indexes.size(); i++) {
+                String value = indexes.get(i).valueOf(item);
+                if (value != null) {
+                    grouped.get(i).computeIfAbsent(value, ignored -> new HashMap<>()).put(key, Boolean.TRUE);
+                }
+            }
+        });
+
+        Map<String, PersistentHashMap<PersistentHashMap<Boolean>>> postings = new LinkedHashMap<>();
+        long bytes = 0;
+        for (int i = 0; i < indexes.size(); i++) {
+            Map<String, PersistentHashMap<Boolean>> byValue = new HashMap<>();
+            for (Map.Entry<String, Map<String, Boolean>> entry : grouped.get(i).entrySet()) {
+                byValue.put(entry.getKey(), PersistentHashMap.of(entry.getValue()));
+                bytes += VALUE_BYTES + entry.getValue().size() * POSTING_BYTES;
+            }
+            postings.put(indexes.get(i).name(), PersistentHashMap.of(byValue));
+        }
+        return new ItemIndexes(indexes, postings, bytes);
+    }
+
+    /**
+     * Indexes of the version built from {@code previous} by changing {@code changed} keys; {@code next} is the item
+     * view of that version.
+     */
+    ItemIndexes patched(Map<String, JsonNode> previous, Map<String, JsonNode> next, Set<String> changed) {
+        if (indexes.isEmpty()) {
+            return this;
+        }
+        Map<String, PersistentHashMap<PersistentHashMap<Boolean>>> patchedPostings = new LinkedHashMap<>();
+        long bytes = estimatedBytes;
+        for (Index index : indexes) {
+            Map<String, Set<String>> changedByValue = new HashMap<>();
+            Map<String, Map<String, Boolean>> addedByValue = new HashMap<>();
+            for (String changedKey : changed) {
+                String before = index.valueOf(previous.get(changedKey));
+                String after = index.valueOf(next.get(changedKey));
+                if (Objects.equals(before, after)) {
+                    continue;
+                }
+                if (before != null) {
+                    changedByValue.computeIfAbsent(before, ignored -> new HashSet<>()).add(changedKey);
+                }
+                if (after != null) {
+                    changedByValue.computeIfAbsent(after, ignored -> new HashSet<>()).add(changedKey);
+                    addedByValue.computeIfAbsent(after, ignored -> new HashMap<>()).put(changedKey, Boolean.TRUE);
+                }
+            }
+
+            PersistentHashMap<PersistentHashMap<Boolean>> byValue = postings.get(index.name());
+            Map<String, PersistentHashMap<Boolean>> replaced = new HashMap<>();
+            for (Map.Entry<String, Set<String>> entry : changedByValue.entrySet()) {
+                PersistentHashMap<Boolean> posting = byValue.getOrDefault(entry.getKey(), NO_KEYS);
+                PersistentHashMap<Boolean> updated = posting.patched(
+                        entry.getValue(), addedByValue.getOrDefault(entry.getKey(), Map.of()));
+                bytes += (updated.size() - posting.size()) * POSTING_BYTES
+                        + (posting.isEmpty() ? VALUE_BYTES : 0)
+                        - (updated.isEmpty() ? VALUE_BYTES : 0);
+                if (!updated.isEmpty()) {
+                    replaced.put(entry.getKey(), updated);
+                }
+            }
+            patchedPostings.put(index.name(), byValue.patched(changedByValue.keySet(), replaced));
+        }
+        return new ItemIndexes(indexes, patchedPostings, bytes);
+    }
+
+    /**
+     * @param value canonical value, see {@link #queryValue}
+     * @return keys of the items matching, or {@code null} when this version was built without that index
+     */
+    Set<String> keys(String indexName, String value) {
+        PersistentHashMap<PersistentHashMap<Boolean>> byValue = postings.get(indexName);
+        if (byValue == null) {
+            return null;
+        }
+        return byValue.getOrDefault(value, NO_KEYS).keySet();
+    }
+
+    long estimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * Keys of {@code items} matching by a full scan, for reads served from PostgreSQL that have no snapshot.
+     */
+    static List<String> scan(RefDataProperties.IndexField field, Map<String, JsonNode> items, String value) {
+        Index index = Index.of(field);
+        List<String> keys = new ArrayList<>();
+        items.forEach((key, item) -> {
+            if (value.equals(index.valueOf(item))) {
+                keys.add(key);
+            }
+        });
+        return keys;
+    }
+
+    /**
+     * Canonical form of a filter value from a query string, matching what {@link #build} stores.
+     *
+     * @throws BadRequestException when the value does not parse as the index type
+     */
+    static String queryValue(RefDataProperties.IndexField field, String value) {
+        try {
+            return switch (field.getType()) {
+                case STRING -> value;
+                case LONG -> Long.toString(Long.parseLong(value));
+                case DOUBLE -> Double.toString(Double.parseDouble(value));
+                case BOOLEAN -> switch (value) {
+                    case "true", "false" -> value;
+                    default -> throw new NumberFormatException(value);
+                };
+            };
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(
+                    "Index " + field.getName() + " expects a " + field.getType() + " value: " + value);
+        }
+    }
+
+    private record Index(String name, JsonPointer pointer, FieldType type) {
+
+        private static Index of(RefDataProperties.IndexField field) {
+            return new Index(field.getName(), JsonPointer.compile(field.getPath()), field.getType());
+        }
+
+        private String valueOf(JsonNode item) {
+            if (item == null) {
+                return null;
+            }
+            JsonNode value = item.at(pointer);
+            return switch (type) {
+                case STRING -> value.isTextual() ? value.textValue() : null;
+                case LONG -> value.isIntegralNumber() && value.canConvertToLong()
+                        ? Long.toString(value.longValue())
+                        : null;
+                case DOUBLE -> value.isNumber() ? Double.toString(value.doubleValue()) : null;
+                case BOOLEAN -> value.isBoolean() ? Boolean.toString(value.booleanValue()) : null;
+            };
+        }
+    }
+}
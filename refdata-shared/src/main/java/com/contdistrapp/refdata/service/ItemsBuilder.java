@@ -0,0 +1,40 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.domain.KeyType;
+import com.contdistrapp.refdata.domain.SnapshotFormat;
+
+import java.util.Map;
+
+/**
+ * Collects the rows of a full dictionary load straight into the map a snapshot of the dictionary keeps, so a reload
+ * holds a single copy of the items. Not thread-safe; {@link #build()} ends the builder.
+ */
+public interface ItemsBuilder<V> {
+
+    void put(String key, V value);
+
+    int size();
+
+    Map<String, V> build();
+
+    /**
+     * A {@link LongKeyMap} for {@code key-type: LONG} or a {@link PersistentHashMap} when the values are what the
+     * snapshot keeps: raw payloads of a {@code RAW} snapshot or trees of a {@code TREE} one. Trees of a
+     * {@code COLUMNAR} dictionary go straight into its columns. Any other load is parsed or repacked by the
+     * snapshot, and a plain hash map only lives until then.
+     *
+     * @param rawPayloads whether the values are payload bytes rather than parsed trees
+     */
+    @SuppressWarnings("unchecked")
+    static <V> ItemsBuilder<V> forDictionary(RefDataProperties.Dictionary dictionary, boolean rawPayloads) {
+        if (!rawPayloads && dictionary.getSnapshotFormat() == SnapshotFormat.COLUMNAR) {
+            return (ItemsBuilder<V>) ColumnarItems.builder(dictionary.getSchema());
+        }
+        SnapshotFormat kept = rawPayloads ? SnapshotFormat.RAW : SnapshotFormat.TREE;
+        if (dictionary.getSnapshotFormat() != kept) {
+            return new HashItemsBuilder<>();
+        }
+        return dictionary.getKeyType() == KeyType.LONG ? new LongKeyMap.Builder<>() : new PersistentHashMap.Builder<>();
+    }
+}
@@ -0,0 +1,9 @@
+package com.contdistrapp.refdata.service;
+
+/**
+ * Slice {@code keys[start, end)} of the sorted keys of {@code result}.
+ *
+ * @param nextFrom first key of the range left out by the limit, or {@code null} when the range is exhausted
+ */
+public record KeyRange(QueryReadResult result, String[] keys, int start, int end, String nextFrom) {
+}
@@ -0,0 +1,282 @@
+package com.contdistrapp.refdata.service;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+/**
+ * Immutable open-addressing map from primitive {@code long} keys to values for dictionaries with
+ * {@code key-type: LONG}. Keys sit in a {@code long[]} beside a parallel value array, so an entry costs two array
+ * slots instead of a hash node and a boxed {@code String}. The {@code Map<String, V>} view parses the decimal key on
+ * lookup and formats it on iteration; callers that already hold a number use {@link #get(long)}.
+ */
+final class LongKeyMap<V> extends AbstractMap<String, V> {
+
+    private static final double LOAD_FACTOR = 0.75;
+
+    private final long[] keys;
+    private final Object[] values;
+    private final int mask;
+    private final int size;
+
+    private LongKeyMap(long[] keys, Object[] values, int size) {
+        this.keys = keys;
+        this.values = values;
+        this.mask = keys.length - 1;
+        this.size = size;
+    }
+
+    /**
+     * @return {@code items} itself when it is already a {@code LongKeyMap}, otherwise a copy of its entries
+     * @throws IllegalStateException when a key is not a decimal {@code long}
+     */
+    static <V> LongKeyMap<V> of(Map<String, V> items) {
+        if (items instanceof LongKeyMap<V> longKeys) {
+            return longKeys;
+        }
+        Builder<V> builder = new Builder<>(items.size());
+        items.forEach((key, value) -> builder.put(requiredKey(key), value));
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Matches only the canonical decimal form that {@link #keySet()} yields, so {@code "007"} or {@code "+7"} miss
+     * like they would in a string-keyed map.
+     */
+    @Override
+    public V get(Object key) {
+        if (!(key instanceof String value)) {
+            return null;
+        }
+        long parsed;
+        try {
+            parsed = Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return Long.toString(parsed).equals(value) ? get(parsed) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        for (int slot = slot(key, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return (V) values[slot];
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    Entry<String, V> at(int slot) {
+                        return new SimpleImmutableEntry<>(Long.toString(keys[slot]), (V) values[slot]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    String at(int slot) {
+                        return Long.toString(keys[slot]);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * New map with {@code changed} keys replaced by {@code loaded} values or removed when absent.
+     */
+    @SuppressWarnings("unchecked")
+    LongKeyMap<V> patched(Set<String> changed, Map<String, V> loaded) {
+        Set<Long> changedKeys = new HashSet<>();
+        for (String key : changed) {
+            changedKeys.add(requiredKey(key));
+        }
+        Builder<V> builder = new Builder<>(size + loaded.size());
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null && !changedKeys.contains(keys[slot])) {
+                builder.put(keys[slot], (V) values[slot]);
+            }
+        }
+        loaded.forEach((key, value) -> builder.put(requiredKey(key), value));
+        return builder.build();
+    }
+
+    /**
+     * Key and reference arrays plus {@code valueBytes} of every value.
+     */
+    @SuppressWarnings("unchecked")
+    long estimatedBytes(ToLongFunction<V> valueBytes) {
+        long bytes = 64 + keys.length * 8L + values.length * 4L;
+        for (Object value : values) {
+            if (value != null) {
+                bytes += valueBytes.applyAsLong((V) value);
+            }
+        }
+        return bytes;
+    }
+
+    private static long requiredKey(String key) {
+        try {
+            return Long.parseLong(key);
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Dictionary key is not a long: " + key, e);
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private abstract class SlotIterator<T> implements Iterator<T> {
+
+        private int next = advance(0);
+
+        @Override
+        public boolean hasNext() {
+            return next < values.length;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int slot = next;
+            next = advance(slot + 1);
+            return at(slot);
+        }
+
+        abstract T at(int slot);
+
+        private int advance(int from) {
+            int slot = from;
+            while (slot < values.length && values[slot] == null) {
+                slot++;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Builder filled row by row while a load streams; the arrays grow as keys arrive.
+     */
+    static final class Builder<V> implements ItemsBuilder<V> {
+
+        private long[] keys;
+        private Object[] values;
+        private int mask;
+        private int size;
+        private boolean built;
+
+        Builder() {
+            this(0);
+        }
+
+        private Builder(int expectedSize) {
+            allocate(Integer.highestOneBit(Math.max(2, (int) Math.ceil(expectedSize / LOAD_FACTOR)) * 2 - 1));
+        }
+
+        /**
+         * @throws IllegalStateException when the key is not a decimal {@code long}
+         */
+        @Override
+        public void put(String key, V value) {
+            put(requiredKey(key), value);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public LongKeyMap<V> build() {
+            built = true;
+            return new LongKeyMap<>(keys, values, size);
+        }
+
+        private void put(long key, V value) {
+            if (built) {
+                throw new IllegalStateException("Builder already built its map");
+            }
+            if (size + 1 > keys.length * LOAD_FACTOR) {
+                grow();
+            }
+            int slot = slot(key, mask);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                size++;
+            }
+            keys[slot] = key;
+            values[slot] = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void grow() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            allocate(oldKeys.length * 2);
+            size = 0;
+            for (int slot = 0; slot < oldValues.length; slot++) {
+                if (oldValues[slot] != null) {
+                    put(oldKeys[slot], (V) oldValues[slot]);
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = new long[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+    }
+}
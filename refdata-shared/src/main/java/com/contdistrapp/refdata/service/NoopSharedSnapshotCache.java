@@ -0,0 +1,34 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.contdistrapp.refdata.persistence.DictionarySnapshotRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.function.Supplier;
+
+@Component
+@ConditionalOnProperty(prefix = "refdata.redis", name = "snapshot-cache-enabled", havingValue = "false",
+        matchIfMissing = true)
+@ConditionalOnRefdataRole({"query-api"})
+public class NoopSharedSnapshotCache implements SharedSnapshotCache {
+
+    @Override
+    public boolean enabled() {
+        return false;
+    }
+
+    @Override
+    public DictionarySnapshotRecord<byte[]> load(
+            String tenantId,
+            String dictCode,
+            long version,
+            Supplier<DictionarySnapshotRecord<byte[]>> loader) {
+        return loader.get();
+    }
+
+    @Override
+    public DictionarySnapshotRecord<byte[]> await(String tenantId, String dictCode, long version) {
+        return null;
+    }
+}
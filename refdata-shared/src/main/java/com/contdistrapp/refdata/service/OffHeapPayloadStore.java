@@ -0,0 +1,393 @@
+package com.contdistrapp.refdata.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Packs UTF-8 keys and payloads into direct {@link ByteBuffer} segments with an open-addressing hash index made
+ * of primitive arrays, so a snapshot of millions of items costs the collector a handful of objects. Lookups return
+ * read-only slices of the region without copying. The entity tag digest of every payload is taken while building,
+ * so conditional reads do not copy payloads back onto the heap.
+ *
+ * <p>A patched store shares the segments of the store it was patched from and appends only the loaded records to
+ * a segment of its own. Once the records it no longer references outweigh the live ones, or the segments pile up,
+ * the patch compacts the live records into a fresh region instead.
+ *
+ * <p>The region is released by the buffers' cleaners once the snapshot is swapped out and the last reader that
+ * still references it is gone.
+ */
+final class OffHeapPayloadStore implements PayloadStore {
+
+    static final int SEGMENT_BYTES = 256 * 1024 * 1024;
+    private static final int ETAG_BYTES = CacheSnapshot.EncodedPayload.ETAG_BYTES;
+    // The entity tags of all entries share one byte array.
+    private static final int MAX_ENTRIES = Integer.MAX_VALUE / ETAG_BYTES;
+    private static final int MAX_SHARED_SEGMENTS = 64;
+
+    private final ByteBuffer[] segments;
+    private final int[] table;
+    private final int[] hashes;
+    private final int[] segmentIndexes;
+    private final int[] offsets;
+    private final int[] keyLengths;
+    private final int[] payloadLengths;
+    private final byte[] etags;
+    private final int size;
+    private final long regionBytes;
+    private final long liveBytes;
+
+    private OffHeapPayloadStore(Builder builder) {
+        this.segments = builder.segments.toArray(ByteBuffer[]::new);
+        this.table = builder.table;
+        this.hashes = builder.hashes;
+        this.segmentIndexes = builder.segmentIndexes;
+        this.offsets = builder.offsets;
+        this.keyLengths = builder.keyLengths;
+        this.payloadLengths = builder.payloadLengths;
+        this.etags = builder.etags;
+        this.size = builder.size;
+        this.regionBytes = builder.regionBytes;
+        this.liveBytes = builder.liveBytes;
+    }
+
+    static OffHeapPayloadStore of(Map<String, byte[]> payloads) {
+        List<byte[]> keys = new ArrayList<>(payloads.size());
+        long totalBytes = 0;
+        for (Map.Entry<String, byte[]> entry : payloads.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            totalBytes += key.length + entry.getValue().length;
+        }
+
+        Builder builder = new Builder(payloads.size(), totalBytes);
+        int index = 0;
+        for (byte[] payload : payloads.values()) {
+            builder.add(keys.get(index++), ByteBuffer.wrap(payload));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Indexes records already laid out in {@code segments} without copying them, e.g. a mapped snapshot file. Each
+     * segment holds whole {@code [int keyLength][int payloadLength][key][payload]} records.
+     */
+    static OffHeapPayloadStore indexed(List<ByteBuffer> segments, int entries) {
+        Builder builder = new Builder(entries, 0);
+        for (ByteBuffer segment : segments) {
+            int segmentIndex = builder.attach(segment);
+            ByteBuffer records = segment.duplicate();
+            while (records.hasRemaining()) {
+                int keyLength = records.getInt();
+                int payloadLength = records.getInt();
+                int offset = records.position();
+                builder.index(segmentIndex, offset, keyLength, payloadLength, null, 0);
+                records.position(offset + keyLength + payloadLength);
+            }
+        }
+        if (builder.size != entries) {
+            throw new IllegalStateException("Expected " + entries + " records, found " + builder.size);
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return find(key.getBytes(StandardCharsets.UTF_8)) >= 0;
+    }
+
+    @Override
+    public ByteBuffer payload(String key) {
+        int entry = find(key.getBytes(StandardCharsets.UTF_8));
+        return entry < 0 ? null : payloadSlice(entry);
+    }
+
+    /**
+     * @return the entity tag of the payload, or {@code null} when the key is absent
+     */
+    String etag(String key) {
+        int entry = find(key.getBytes(StandardCharsets.UTF_8));
+        return entry < 0 ? null : CacheSnapshot.EncodedPayload.etag(etags, entry * ETAG_BYTES);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<>() {
+                    private int next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        return key(next++);
+                    }
+                };
+            }
+
+            @Override
+            public boolean contains(Object key) {
+                return key instanceof String value && containsKey(value);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void forEach(BiConsumer<String, ByteBuffer> action) {
+        for (int entry = 0; entry < size; entry++) {
+            action.accept(key(entry), payloadSlice(entry));
+        }
+    }
+
+    @Override
+    public long estimatedBytes() {
+        return regionBytes + 4L * table.length + (20L + ETAG_BYTES) * size;
+    }
+
+    @Override
+    public boolean onHeap() {
+        return false;
+    }
+
+    @Override
+    public PayloadStore patched(Set<String> changed, Map<String, byte[]> loaded) {
+        boolean[] kept = new boolean[size];
+        int keptEntries = 0;
+        long keptBytes = 0;
+        for (int entry = 0; entry < size; entry++) {
+            if (!changed.contains(key(entry))) {
+                kept[entry] = true;
+                keptEntries++;
+                keptBytes += keyLengths[entry] + payloadLengths[entry];
+            }
+        }
+        List<byte[]> loadedKeys = new ArrayList<>(loaded.size());
+        List<byte[]> loadedPayloads = new ArrayList<>(loaded.size());
+        long loadedBytes = 0;
+        for (Map.Entry<String, byte[]> entry : loaded.entrySet()) {
+            if (changed.contains(entry.getKey())) {
+                byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                loadedKeys.add(key);
+                loadedPayloads.add(entry.getValue());
+                loadedBytes += key.length + entry.getValue().length;
+            }
+        }
+
+        long live = keptBytes + loadedBytes;
+        boolean compact = regionBytes + loadedBytes - live > live || segments.length >= MAX_SHARED_SEGMENTS;
+        Builder builder = new Builder(keptEntries + loadedKeys.size(), compact ? live : loadedBytes);
+        if (compact) {
+            // Sized to the exact bytes of the live records, so the compacted region does not keep any slack.
+            for (int entry = 0; entry < size; entry++) {
+                if (kept[entry]) {
+                    builder.add(keySlice(entry), payloadSlice(entry), etags, entry * ETAG_BYTES);
+                }
+            }
+        } else {
+            for (ByteBuffer segment : segments) {
+                builder.attach(segment);
+            }
+            for (int entry = 0; entry < size; entry++) {
+                if (kept[entry]) {
+                    builder.index(segmentIndexes[entry], offsets[entry], keyLengths[entry], payloadLengths[entry],
+                            etags, entry * ETAG_BYTES);
+                }
+            }
+        }
+        for (int i = 0; i < loadedKeys.size(); i++) {
+            builder.add(loadedKeys.get(i), ByteBuffer.wrap(loadedPayloads.get(i)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Bytes of this store, region and index, that {@code newer} does not share: everything unless {@code newer} was
+     * patched from this store without compacting.
+     */
+    long bytesNotSharedWith(OffHeapPayloadStore newer) {
+        long shared = 0;
+        for (int i = 0; i < segments.length && i < newer.segments.length; i++) {
+            if (newer.segments[i] == segments[i]) {
+                shared += segments[i].capacity();
+            }
+        }
+        return estimatedBytes() - shared;
+    }
+
+    /**
+     * Bytes of all segments the store references, including records only earlier versions still read.
+     */
+    long regionBytes() {
+        return regionBytes;
+    }
+
+    /**
+     * Bytes of the records of this version.
+     */
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    private int find(byte[] key) {
+        int hash = hash(ByteBuffer.wrap(key));
+        int mask = table.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = table[slot];
+            if (id == 0) {
+                return -1;
+            }
+            int entry = id - 1;
+            if (hashes[entry] == hash
+                    && keyLengths[entry] == key.length
+                    && keySlice(entry).mismatch(ByteBuffer.wrap(key)) < 0) {
+                return entry;
+            }
+        }
+    }
+
+    private String key(int entry) {
+        ByteBuffer slice = keySlice(entry);
+        byte[] bytes = new byte[slice.remaining()];
+        slice.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private ByteBuffer keySlice(int entry) {
+        return segments[segmentIndexes[entry]].slice(offsets[entry], keyLengths[entry]).asReadOnlyBuffer();
+    }
+
+    private ByteBuffer payloadSlice(int entry) {
+        return segments[segmentIndexes[entry]]
+                .slice(offsets[entry] + keyLengths[entry], payloadLengths[entry])
+                .asReadOnlyBuffer();
+    }
+
+    private static int hash(ByteBuffer key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Builder {
+
+        private final List<ByteBuffer> segments = new ArrayList<>();
+        private final int[] table;
+        private final int[] hashes;
+        private final int[] segmentIndexes;
+        private final int[] offsets;
+        private final int[] keyLengths;
+        private final int[] payloadLengths;
+        private final byte[] etags;
+        private final MessageDigest digest = CacheSnapshot.EncodedPayload.sha256();
+        // Segment new records go to; attached segments are shared or mapped and never written.
+        private ByteBuffer writable;
+        private long remainingBytes;
+        private long regionBytes;
+        private long liveBytes;
+        private int size;
+
+        /**
+         * @param totalBytes bytes of the records to be added, the region attached segments bring is not included
+         */
+        private Builder(int expectedEntries, long totalBytes) {
+            if (expectedEntries > MAX_ENTRIES) {
+                throw new IllegalStateException("An off-heap snapshot holds at most " + MAX_ENTRIES
+                        + " items, got " + expectedEntries);
+            }
+            int capacity = Integer.highestOneBit(Math.max(2, expectedEntries * 2 - 1)) << 1;
+            this.table = new int[capacity];
+            this.hashes = new int[expectedEntries];
+            this.segmentIndexes = new int[expectedEntries];
+            this.offsets = new int[expectedEntries];
+            this.keyLengths = new int[expectedEntries];
+            this.payloadLengths = new int[expectedEntries];
+            this.etags = new byte[expectedEntries * ETAG_BYTES];
+            this.remainingBytes = totalBytes;
+        }
+
+        private void add(byte[] key, ByteBuffer payload) {
+            add(ByteBuffer.wrap(key), payload, null, 0);
+        }
+
+        /**
+         * @param etagSource digests to copy the payload's entity tag from, or {@code null} to digest the payload
+         */
+        private void add(ByteBuffer key, ByteBuffer payload, byte[] etagSource, int etagOffset) {
+            int keyLength = key.remaining();
+            int payloadLength = payload.remaining();
+            int needed = keyLength + payloadLength;
+            if (writable == null || writable.remaining() < needed) {
+                int segmentBytes = (int) Math.max(needed, Math.min(SEGMENT_BYTES, remainingBytes));
+                writable = ByteBuffer.allocateDirect(segmentBytes);
+                segments.add(writable);
+                regionBytes += segmentBytes;
+            }
+
+            int offset = writable.position();
+            writable.put(key.duplicate()).put(payload.duplicate());
+            remainingBytes -= needed;
+            index(segments.size() - 1, offset, keyLength, payloadLength, etagSource, etagOffset);
+        }
+
+        private int attach(ByteBuffer segment) {
+            segments.add(segment);
+            regionBytes += segment.capacity();
+            return segments.size() - 1;
+        }
+
+        private void index(
+                int segmentIndex, int offset, int keyLength, int payloadLength, byte[] etagSource, int etagOffset) {
+            int entry = size++;
+            ByteBuffer segment = segments.get(segmentIndex);
+            hashes[entry] = hash(segment.slice(offset, keyLength));
+            if (etagSource != null) {
+                System.arraycopy(etagSource, etagOffset, etags, entry * ETAG_BYTES, ETAG_BYTES);
+            } else {
+                digest.update(segment.slice(offset + keyLength, payloadLength));
+                System.arraycopy(digest.digest(), 0, etags, entry * ETAG_BYTES, ETAG_BYTES);
+            }
+            segmentIndexes[entry] = segmentIndex;
+            offsets[entry] = offset;
+            keyLengths[entry] = keyLength;
+            payloadLengths[entry] = payloadLength;
+            liveBytes += keyLength + payloadLength;
+
+            int mask = table.length - 1;
+            int slot = hashes[entry] & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = entry + 1;
+        }
+
+        private OffHeapPayloadStore build() {
+            return new OffHeapPayloadStore(this);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.contdistrapp.refdata.service;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Raw UTF-8 JSON payloads of one snapshot version, keyed by item key.
+ */
+interface PayloadStore {
+
+    int size();
+
+    boolean containsKey(String key);
+
+    /**
+     * @return the stored payload bytes between position and limit, or {@code null} when the key is absent
+     */
+    ByteBuffer payload(String key);
+
+    Set<String> keys();
+
+    void forEach(BiConsumer<String, ByteBuffer> action);
+
+    /**
+     * Heap plus off-heap bytes retained by the store.
+     */
+    long estimatedBytes();
+
+    /**
+     * {@code false} when payloads live outside the Java heap; encoders then avoid memoizing copies on the heap.
+     */
+    boolean onHeap();
+
+    /**
+     * New store of the same kind with {@code changed} keys replaced by {@code loaded} values or removed when absent.
+     */
+    PayloadStore patched(Set<String> changed, Map<String, byte[]> loaded);
+}
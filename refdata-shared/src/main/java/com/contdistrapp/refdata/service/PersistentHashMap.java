@@ -0,0 +1,431 @@
+package com.contdistrapp.refdata.service;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Immutable hash array mapped trie from string keys to values. Each node keeps a 32-bit bitmap of the occupied
+ * hash slots of its level and a compact array of key/value pairs, where a {@code null} key marks a child node.
+ * {@link #patched} copies only the nodes on the paths to changed keys, so version N+1 of a snapshot shares every
+ * untouched node with version N and costs {@code O(changed * log32 n)}.
+ */
+final class PersistentHashMap<V> extends AbstractMap<String, V> {
+
+    private static final int BITS = 5;
+    private static final int LEVEL_MASK = (1 << BITS) - 1;
+    // Seven bitmap levels consume the 32-bit hash; equal hashes end in one collision node below them.
+    private static final int MAX_DEPTH = 8;
+    private static final BitmapNode EMPTY_ROOT = new BitmapNode(null, 0, new Object[0]);
+
+    private final BitmapNode root;
+    private final int size;
+
+    private PersistentHashMap(BitmapNode root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @return {@code items} itself when it is already persistent, otherwise a trie holding a copy of its entries
+     */
+    static <V> PersistentHashMap<V> of(Map<String, V> items) {
+        if (items instanceof PersistentHashMap<V> persistent) {
+            return persistent;
+        }
+        Builder<V> builder = new Builder<>();
+        items.forEach(builder::put);
+        return builder.build();
+    }
+
+    /**
+     * New map with {@code changed} keys replaced by {@code loaded} values or removed when absent. Nodes created
+     * while applying the batch are updated in place; nodes of this map are never modified.
+     */
+    PersistentHashMap<V> patched(Set<String> changed, Map<String, V> loaded) {
+        Object edit = new Object();
+        SizeChange sizeChange = new SizeChange();
+        Node next = root;
+        for (String changedKey : changed) {
+            V value = loaded.get(changedKey);
+            next = value == null
+                    ? next.remove(edit, changedKey, hash(changedKey), 0, sizeChange)
+                    : next.put(edit, changedKey, hash(changedKey), value, 0, sizeChange);
+            if (next == null) {
+                next = EMPTY_ROOT;
+            }
+        }
+        return next == root ? this : new PersistentHashMap<>((BitmapNode) next, size + sizeChange.delta);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (!(key instanceof String value)) {
+            return null;
+        }
+        return (V) root.find(value, hash(value), 0);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super String, ? super V> action) {
+        root.forEach((BiConsumer<String, Object>) action);
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, V>> iterator() {
+                return new EntryIterator<>(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Builder filled row by row while a load streams. Nodes are owned by its edit token and updated in place, so
+     * building {@code n} entries allocates only the final trie; {@link #build()} ends the batch.
+     */
+    static final class Builder<V> implements ItemsBuilder<V> {
+
+        private final SizeChange sizeChange = new SizeChange();
+        private Object edit = new Object();
+        private BitmapNode root = EMPTY_ROOT;
+
+        @Override
+        public void put(String key, V value) {
+            if (edit == null) {
+                throw new IllegalStateException("Builder already built its map");
+            }
+            root = (BitmapNode) root.put(edit, key, hash(key), value, 0, sizeChange);
+        }
+
+        @Override
+        public int size() {
+            return sizeChange.delta;
+        }
+
+        @Override
+        public PersistentHashMap<V> build() {
+            // Nodes of a published map must never change again.
+            edit = null;
+            return new PersistentHashMap<>(root, sizeChange.delta);
+        }
+    }
+
+    private static int hash(String key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class SizeChange {
+        private int delta;
+    }
+
+    private abstract static sealed class Node permits BitmapNode, CollisionNode {
+
+        // Owner token of the batch that created the node; only that batch may update it in place.
+        final Object edit;
+        // Key/value pairs; in a bitmap node a null key means the value slot holds a child node.
+        Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+
+        abstract Object find(String key, int hash, int shift);
+
+        abstract Node put(Object edit, String key, int hash, Object value, int shift, SizeChange sizeChange);
+
+        /**
+         * @return {@code null} when the last entry of the node was removed
+         */
+        abstract Node remove(Object edit, String key, int hash, int shift, SizeChange sizeChange);
+
+        /**
+         * Key/value array of a node holding exactly one entry and no child, which the parent can inline.
+         */
+        Object[] singleEntry() {
+            return array.length == 2 && array[0] != null ? array : null;
+        }
+
+        void forEach(BiConsumer<String, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] != null) {
+                    action.accept((String) array[i], array[i + 1]);
+                } else {
+                    ((Node) array[i + 1]).forEach(action);
+                }
+            }
+        }
+    }
+
+    private static final class BitmapNode extends Node {
+
+        private int bitmap;
+
+        private BitmapNode(Object edit, int bitmap, Object[] array) {
+            super(edit, array);
+            this.bitmap = bitmap;
+        }
+
+        @Override
+        Object find(String key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int slot = 2 * index(bit);
+            Object slotKey = array[slot];
+            if (slotKey == null) {
+                return ((Node) array[slot + 1]).find(key, hash, shift + BITS);
+            }
+            return key.equals(slotKey) ? array[slot + 1] : null;
+        }
+
+        @Override
+        Node put(Object edit, String key, int hash, Object value, int shift, SizeChange sizeChange) {
+            int bit = bit(hash, shift);
+            int slot = 2 * index(bit);
+            if ((bitmap & bit) == 0) {
+                sizeChange.delta++;
+                Object[] grown = new Object[array.length + 2];
+                System.arraycopy(array, 0, grown, 0, slot);
+                grown[slot] = key;
+                grown[slot + 1] = value;
+                System.arraycopy(array, slot, grown, slot + 2, array.length - slot);
+                if (this.edit == edit) {
+                    array = grown;
+                    bitmap |= bit;
+                    return this;
+                }
+                return new BitmapNode(edit, bitmap | bit, grown);
+            }
+
+            Object slotKey = array[slot];
+            Object slotValue = array[slot + 1];
+            if (slotKey == null) {
+                Node child = ((Node) slotValue).put(edit, key, hash, value, shift + BITS, sizeChange);
+                return child == slotValue ? this : editable(edit).set(slot, null, child);
+            }
+            if (key.equals(slotKey)) {
+                return slotValue == value ? this : editable(edit).set(slot, slotKey, value);
+            }
+            sizeChange.delta++;
+            Node child = pair(edit, shift + BITS, (String) slotKey, slotValue, key, hash, value);
+            return editable(edit).set(slot, null, child);
+        }
+
+        @Override
+        Node remove(Object edit, String key, int hash, int shift, SizeChange sizeChange) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int slot = 2 * index(bit);
+            Object slotKey = array[slot];
+            Object slotValue = array[slot + 1];
+            if (slotKey == null) {
+                Node child = ((Node) slotValue).remove(edit, key, hash, shift + BITS, sizeChange);
+                if (child == slotValue) {
+                    return this;
+                }
+                if (child == null) {
+                    return without(edit, bit, slot);
+                }
+                Object[] single = child.singleEntry();
+                return single == null
+                        ? editable(edit).set(slot, null, child)
+                        : editable(edit).set(slot, single[0], single[1]);
+            }
+            if (!key.equals(slotKey)) {
+                return this;
+            }
+            sizeChange.delta--;
+            return without(edit, bit, slot);
+        }
+
+        private Node without(Object edit, int bit, int slot) {
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, slot);
+            System.arraycopy(array, slot + 2, shrunk, slot, array.length - slot - 2);
+            if (this.edit == edit) {
+                array = shrunk;
+                bitmap &= ~bit;
+                return this;
+            }
+            return new BitmapNode(edit, bitmap & ~bit, shrunk);
+        }
+
+        private BitmapNode editable(Object edit) {
+            return this.edit == edit ? this : new BitmapNode(edit, bitmap, array.clone());
+        }
+
+        private BitmapNode set(int slot, Object key, Object value) {
+            array[slot] = key;
+            array[slot + 1] = value;
+            return this;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private static Node pair(Object edit, int shift, String key1, Object value1,
+                                 String key2, int hash2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) {
+                return new CollisionNode(edit, hash1, new Object[]{key1, value1, key2, value2});
+            }
+            SizeChange ignored = new SizeChange();
+            return new BitmapNode(edit, 0, new Object[0])
+                    .put(edit, key1, hash1, value1, shift, ignored)
+                    .put(edit, key2, hash2, value2, shift, ignored);
+        }
+
+        private static int bit(int hash, int shift) {
+            return 1 << ((hash >>> shift) & LEVEL_MASK);
+        }
+    }
+
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(Object edit, int hash, Object[] array) {
+            super(edit, array);
+            this.hash = hash;
+        }
+
+        @Override
+        Object find(String key, int hash, int shift) {
+            int slot = slot(key);
+            return slot < 0 ? null : array[slot + 1];
+        }
+
+        @Override
+        Node put(Object edit, String key, int hash, Object value, int shift, SizeChange sizeChange) {
+            if (hash != this.hash) {
+                // A different hash reached this level: push the collision one bitmap level down.
+                return new BitmapNode(edit, BitmapNode.bit(this.hash, shift), new Object[]{null, this})
+                        .put(edit, key, hash, value, shift, sizeChange);
+            }
+            int slot = slot(key);
+            if (slot >= 0) {
+                if (array[slot + 1] == value) {
+                    return this;
+                }
+                Object[] replaced = array.clone();
+                replaced[slot + 1] = value;
+                return new CollisionNode(edit, hash, replaced);
+            }
+            sizeChange.delta++;
+            Object[] grown = new Object[array.length + 2];
+            System.arraycopy(array, 0, grown, 0, array.length);
+            grown[array.length] = key;
+            grown[array.length + 1] = value;
+            return new CollisionNode(edit, hash, grown);
+        }
+
+        @Override
+        Node remove(Object edit, String key, int hash, int shift, SizeChange sizeChange) {
+            int slot = slot(key);
+            if (slot < 0) {
+                return this;
+            }
+            sizeChange.delta--;
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] shrunk = new Object[array.length - 2];
+            System.arraycopy(array, 0, shrunk, 0, slot);
+            System.arraycopy(array, slot + 2, shrunk, slot, array.length - slot - 2);
+            return new CollisionNode(edit, hash, shrunk);
+        }
+
+        private int slot(String key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class EntryIterator<V> implements Iterator<Entry<String, V>> {
+
+        private final Object[][] arrays = new Object[MAX_DEPTH][];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private String nextKey;
+        private Object nextValue;
+
+        private EntryIterator(Node root) {
+            arrays[0] = root.array;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextKey != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<String, V> next() {
+            if (nextKey == null) {
+                throw new NoSuchElementException();
+            }
+            Entry<String, V> entry = new SimpleImmutableEntry<>(nextKey, (V) nextValue);
+            advance();
+            return entry;
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length) {
+                    arrays[depth--] = null;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                if (array[position] != null) {
+                    nextKey = (String) array[position];
+                    nextValue = array[position + 1];
+                    return;
+                }
+                depth++;
+                arrays[depth] = ((Node) array[position + 1]).array;
+                positions[depth] = 0;
+            }
+            nextKey = null;
+            nextValue = null;
+        }
+    }
+}
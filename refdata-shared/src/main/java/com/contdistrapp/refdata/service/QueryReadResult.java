@@ -5,5 +5,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 
 import java.util.Map;
 
-public record QueryReadResult(long version, DataSourceType sourceType, Map<String, JsonNode> items) {
+/**
+ * @param snapshot pod snapshot the items were read from; {@code null} for reads served from PostgreSQL
+ */
+public record QueryReadResult(long version, DataSourceType sourceType, Map<String, JsonNode> items, CacheSnapshot snapshot) {
+
+    public QueryReadResult(long version, DataSourceType sourceType, Map<String, JsonNode> items) {
+        this(version, sourceType, items, null);
+    }
 }
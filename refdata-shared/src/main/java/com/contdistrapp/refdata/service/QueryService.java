@@ -1,178 +1,1019 @@
 package com.contdistrapp.refdata.service;
 
 import com.contdistrapp.refdata.bus.InvalidationBus;
+import com.contdistrapp.refdata.config.RefDataProperties;
 import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
 import com.contdistrapp.refdata.domain.DataSourceType;
 import com.contdistrapp.refdata.domain.InvalidationEvent;
+import com.contdistrapp.refdata.domain.KeyType;
+import com.contdistrapp.refdata.domain.ReloadMode;
+import com.contdistrapp.refdata.domain.SnapshotFormat;
+import com.contdistrapp.refdata.error.BadRequestException;
+import com.contdistrapp.refdata.error.CursorExpiredException;
+import com.contdistrapp.refdata.error.FallbackOverloadedException;
 import com.contdistrapp.refdata.error.NotFoundException;
 import com.contdistrapp.refdata.error.VersionNotCommittedException;
+import com.contdistrapp.refdata.error.VersionNotRetainedException;
+import com.contdistrapp.refdata.persistence.DictionaryPatchRecord;
 import com.contdistrapp.refdata.persistence.DictionaryProvider;
+import com.contdistrapp.refdata.persistence.DictionarySnapshotRecord;
 import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
 
 @Service
 @ConditionalOnRefdataRole({"query-api"})
 public class QueryService {
 
+    private static final Logger log = LoggerFactory.getLogger(QueryService.class);
+
+    private static final long BUCKET_OVERHEAD_BYTES = 512;
+    private static final double EVICTION_LOW_WATERMARK = 0.9;
+    private static final CacheSnapshot EMPTY_SNAPSHOT = new CacheSnapshot(0, Map.of());
+
     private final DictionaryProvider dictionaryProvider;
     private final DictionaryRegistry dictionaryRegistry;
+    private final RefDataProperties properties;
     private final RefDataTimeouts timeouts;
     private final ExecutorService cacheReloadExecutor;
+    private final ObjectMapper objectMapper;
+    private final SnapshotFileStore snapshotFileStore;
+    private final SharedSnapshotCache sharedSnapshotCache;
+    private final TenantOwnership tenantOwnership;
 
     private final Map<CacheKey, CacheBucket> cache = new ConcurrentHashMap<>();
+    private final ReloadCoalescer<CacheKey> reloadCoalescer;
+    private final Semaphore reloadPermits;
+
+    private final long memoryBudgetBytes;
+    private final AtomicLong residentBytes = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final Counter evictions;
+    private final Map<String, Long> unknownTenants;
+
+    private final Map<FallbackKey, CompletableFuture<QueryReadResult>> fallbackFlights = new ConcurrentHashMap<>();
+    private final Map<PinnedVersion, PinnedSnapshot> pinnedSnapshots = new ConcurrentHashMap<>();
+    private final Semaphore fallbackPermits;
+    private final Counter fallbacksLoaded;
+    private final Counter fallbacksShared;
+    private final Counter fallbacksRejected;
 
     public QueryService(
             DictionaryProvider dictionaryProvider,
             DictionaryRegistry dictionaryRegistry,
+            RefDataProperties properties,
             RefDataTimeouts timeouts,
             ExecutorService cacheReloadExecutor,
-            InvalidationBus invalidationBus
+            InvalidationBus invalidationBus,
+            MeterRegistry meterRegistry,
+            ObjectMapper objectMapper,
+            SnapshotFileStore snapshotFileStore,
+            SharedSnapshotCache sharedSnapshotCache,
+            TenantOwnership tenantOwnership
     ) {
         this.dictionaryProvider = dictionaryProvider;
         this.dictionaryRegistry = dictionaryRegistry;
+        this.properties = properties;
         this.timeouts = timeouts;
         this.cacheReloadExecutor = cacheReloadExecutor;
+        this.objectMapper = objectMapper;
+        this.snapshotFileStore = snapshotFileStore;
+        this.sharedSnapshotCache = sharedSnapshotCache;
+        this.tenantOwnership = tenantOwnership;
+        this.reloadCoalescer = new ReloadCoalescer<>(
+                timeouts.coalesceWindowMs(),
+                timeouts.reloadJitterMaxMs(),
+                cacheReloadExecutor,
+                this::reloadCoalesced);
+        this.reloadPermits = new Semaphore(properties.getCache().getReloadParallelism());
+        this.memoryBudgetBytes = properties.getCache().getMemoryBudgetMb() * 1024 * 1024;
+        Gauge.builder("refdata.cache.resident.bytes", residentBytes, AtomicLong::get)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("refdata.cache.buckets", cache, Map::size).register(meterRegistry);
+        this.evictions = Counter.builder("refdata.cache.evictions").register(meterRegistry);
+        this.unknownTenants = boundedLruMap(properties.getCache().getUnknownTenantCacheSize());
+        this.fallbackPermits = new Semaphore(properties.getQuery().getMaxConcurrentFallbacks());
+        this.fallbacksLoaded = fallbackCounter(meterRegistry, "loaded");
+        this.fallbacksShared = fallbackCounter(meterRegistry, "shared");
+        this.fallbacksRejected = fallbackCounter(meterRegistry, "rejected");
         invalidationBus.subscribe(this::onInvalidation);
+        tenantOwnership.onRebalance(this::dropForeignTenants);
     }
 
-    public QueryReadResult readItem(String tenantId, String dictCode, String key, Long minVersion) {
-        QueryReadResult full = readAll(tenantId, dictCode, minVersion);
-        JsonNode value = full.items().get(key);
-        if (value == null) {
-            throw new NotFoundException("Item not found: " + key);
+    public QueryReadResult readItem(String tenantId, String dictCode, String key) {
+        return selectItem(readAll(tenantId, dictCode), key);
+    }
+
+    public CompletableFuture<QueryReadResult> readItem(String tenantId, String dictCode, String key, long minVersion) {
+        return readAtVersion(tenantId, dictCode, minVersion,
+                full -> selectItem(full, key),
+                List.of(key),
+                cacheKey -> dictionaryProvider.loadOne(cacheKey.tenantId(), cacheKey.dictCode(), key)
+                        .map(value -> Map.of(key, value))
+                        .orElse(Map.of()));
+    }
+
+    public CompletableFuture<QueryReadResult> readItemExact(
+            String tenantId,
+            String dictCode,
+            String key,
+            long version) {
+        return readExact(tenantId, dictCode, version,
+                full -> selectItem(full, key),
+                List.of(key),
+                cacheKey -> dictionaryProvider.loadOne(cacheKey.tenantId(), cacheKey.dictCode(), key)
+                        .map(value -> Map.of(key, value))
+                        .orElse(Map.of()));
+    }
+
+    public QueryReadResult readItems(String tenantId, String dictCode, List<String> keys) {
+        return selectItems(readAll(tenantId, dictCode), keys);
+    }
+
+    public CompletableFuture<QueryReadResult> readItems(
+            String tenantId,
+            String dictCode,
+            List<String> keys,
+            long minVersion) {
+        return readAtVersion(tenantId, dictCode, minVersion,
+                full -> selectItems(full, keys),
+                List.copyOf(keys),
+                cacheKey -> dictionaryProvider.loadByKeys(cacheKey.tenantId(), cacheKey.dictCode(), keys));
+    }
+
+    public CompletableFuture<QueryReadResult> readItemsExact(
+            String tenantId,
+            String dictCode,
+            List<String> keys,
+            long version) {
+        return readExact(tenantId, dictCode, version,
+                full -> selectItems(full, keys),
+                List.copyOf(keys),
+                cacheKey -> dictionaryProvider.loadByKeys(cacheKey.tenantId(), cacheKey.dictCode(), keys));
+    }
+
+    /**
+     * Items whose value of the dictionary index {@code indexName} equals {@code value}, looked up in the snapshot's
+     * index without scanning the dictionary.
+     */
+    public QueryReadResult readWhere(String tenantId, String dictCode, String indexName, String value) {
+        return whereSelector(dictCode, indexName, value).apply(readAll(tenantId, dictCode));
+    }
+
+    public CompletableFuture<QueryReadResult> readWhere(
+            String tenantId,
+            String dictCode,
+            String indexName,
+            String value,
+            long minVersion) {
+        return readAtVersion(tenantId, dictCode, minVersion, whereSelector(dictCode, indexName, value), null,
+                cacheKey -> dictionaryProvider.loadAll(cacheKey.tenantId(), cacheKey.dictCode()));
+    }
+
+    public CompletableFuture<QueryReadResult> readWhereExact(
+            String tenantId,
+            String dictCode,
+            String indexName,
+            String value,
+            long version) {
+        return readExact(tenantId, dictCode, version, whereSelector(dictCode, indexName, value), null,
+                cacheKey -> dictionaryProvider.loadAll(cacheKey.tenantId(), cacheKey.dictCode()));
+    }
+
+    /**
+     * Reads a key range from the sorted key index of a {@code sorted-keys} dictionary; {@code exactVersion} takes
+     * precedence over {@code minVersion}, without either the current snapshot is used.
+     *
+     * @throws BadRequestException when the dictionary keeps no sorted keys or a bound does not fit the key type
+     */
+    public CompletableFuture<KeyRange> readRange(
+            String tenantId,
+            String dictCode,
+            String prefix,
+            String from,
+            String to,
+            int limit,
+            Long minVersion,
+            Long exactVersion) {
+        RefDataProperties.Dictionary dictionary = dictionaryRegistry.required(dictCode);
+        if (!dictionary.isSortedKeys()) {
+            throw new BadRequestException("Dictionary " + dictionary.getCode() + " does not keep sorted keys");
+        }
+        KeyType keyType = dictionary.getKeyType();
+        if (prefix != null && keyType == KeyType.LONG) {
+            throw new BadRequestException("prefix is not supported for key-type LONG, use from and to");
+        }
+        String lower = rangeBound(keyType, from, "from");
+        String upper = rangeBound(keyType, to, "to");
+
+        CompletableFuture<QueryReadResult> full;
+        if (exactVersion != null) {
+            full = readAllExact(tenantId, dictCode, exactVersion);
+        } else if (minVersion != null) {
+            full = readAll(tenantId, dictCode, minVersion);
+        } else {
+            full = CompletableFuture.completedFuture(readAll(tenantId, dictCode));
+        }
+        return full.thenApply(result -> {
+            SortedKeys sorted = result.snapshot() == null ? null : result.snapshot().sortedKeys();
+            if (sorted == null) {
+                sorted = SortedKeys.build(result.items().keySet(), keyType);
+            }
+            return sorted.range(result, prefix, lower, upper, limit);
+        });
+    }
+
+    public QueryReadResult readAll(String tenantId, String dictCode) {
+        CacheBucket bucket = loadedBucket(cacheKey(tenantId, dictCode));
+        return memoryResult(bucket == null ? EMPTY_SNAPSHOT : bucket.snapshotRef.get());
+    }
+
+    /**
+     * Completes once the pod snapshot reaches {@code minVersion}, without holding the calling thread. When the
+     * snapshot does not catch up within {@code waitForReloadMs} the read falls back to PostgreSQL.
+     */
+    public CompletableFuture<QueryReadResult> readAll(String tenantId, String dictCode, long minVersion) {
+        return readAtVersion(tenantId, dictCode, minVersion, Function.identity(), null,
+                cacheKey -> dictionaryProvider.loadAll(cacheKey.tenantId(), cacheKey.dictCode()));
+    }
+
+    public CompletableFuture<QueryReadResult> readAllExact(String tenantId, String dictCode, long version) {
+        return readExact(tenantId, dictCode, version, Function.identity(), null,
+                cacheKey -> dictionaryProvider.loadAll(cacheKey.tenantId(), cacheKey.dictCode()));
+    }
+
+    /**
+     * Loads the bucket on the reload executor; completes with {@code true} once a committed version is resident.
+     */
+    public CompletableFuture<Boolean> warmUp(String tenantId, String dictCode) {
+        CacheKey key = cacheKey(tenantId, dictCode);
+        return CompletableFuture.supplyAsync(() -> {
+            CacheBucket bucket = bucket(key);
+            ensureLoaded(key, bucket);
+            return bucket.snapshotRef.get().version() > 0;
+        }, cacheReloadExecutor);
+    }
+
+    /**
+     * Whether a committed version of the dictionary is in the pod cache; never loads it.
+     */
+    public boolean isResident(String tenantId, String dictCode) {
+        CacheBucket bucket = cache.get(cacheKey(tenantId, dictCode));
+        return bucket != null && bucket.snapshotRef.get().version() > 0;
+    }
+
+    /**
+     * Retains the snapshot a paged read started on for {@code page-cursor-ttl-ms} after its last page, so the
+     * following pages come from the same version even after newer ones were swapped in. Fallback reads are wrapped
+     * into a snapshot of their own.
+     */
+    public QueryReadResult pinForPaging(String tenantId, String dictCode, QueryReadResult result) {
+        expirePinnedSnapshots();
+        CacheSnapshot snapshot = result.snapshot() != null
+                ? result.snapshot()
+                : new CacheSnapshot(result.version(), result.items());
+        PinnedSnapshot pinned = pinnedSnapshots.computeIfAbsent(
+                new PinnedVersion(cacheKey(tenantId, dictCode), snapshot.version()),
+                ignored -> {
+                    snapshot.hold(residentBytes::addAndGet);
+                    return new PinnedSnapshot(snapshot, result.sourceType());
+                });
+        return pinned.read();
+    }
+
+    /**
+     * @throws CursorExpiredException when the version is no longer retained for paging
+     */
+    public QueryReadResult readPinned(String tenantId, String dictCode, long version) {
+        expirePinnedSnapshots();
+        CacheKey key = cacheKey(tenantId, dictCode);
+        PinnedSnapshot pinned = pinnedSnapshots.get(new PinnedVersion(key, version));
+        if (pinned != null) {
+            return pinned.read();
+        }
+        CacheBucket bucket = cache.get(key);
+        CacheSnapshot retained = bucket == null ? null : bucket.snapshotAt(version);
+        if (retained == null) {
+            throw new CursorExpiredException("Page cursor of version " + version + " has expired, restart paging");
+        }
+        return pinForPaging(tenantId, dictCode, memoryResult(retained));
+    }
+
+    public long currentVersion(String tenantId, String dictCode) {
+        CacheBucket bucket = loadedBucket(cacheKey(tenantId, dictCode));
+        return bucket == null ? 0 : bucket.snapshotRef.get().version();
+    }
+
+    /**
+     * @param fallbackKeys   keys the request reads, {@code null} for the whole dictionary
+     * @param fallbackLoader loads only the data the request needs when the read falls back to PostgreSQL
+     */
+    private CompletableFuture<QueryReadResult> readAtVersion(
+            String tenantId,
+            String dictCode,
+            long minVersion,
+            Function<QueryReadResult, QueryReadResult> selector,
+            List<String> fallbackKeys,
+            Function<CacheKey, Map<String, JsonNode>> fallbackLoader) {
+        CacheKey key = cacheKey(tenantId, dictCode);
+        CacheBucket bucket = cache.get(key) == null && isUnknownTenant(key.tenantId()) ? null : bucket(key);
+        if (bucket != null && isCold(bucket)) {
+            // A cold bucket is restored or loaded on the reload executor, never on the request thread.
+            CacheBucket cold = bucket;
+            return CompletableFuture.runAsync(() -> ensureLoaded(key, cold), cacheReloadExecutor)
+                    .thenCompose(ignored -> readResident(key, cold,
+                            // Still cold: another reload holds the lock, wait for its first version.
+                            isCold(cold) ? Math.max(minVersion, 1) : minVersion,
+                            selector, fallbackKeys, fallbackLoader));
+        }
+        return readResident(key, bucket, minVersion, selector, fallbackKeys, fallbackLoader);
+    }
+
+    private CompletableFuture<QueryReadResult> readResident(
+            CacheKey key,
+            CacheBucket bucket,
+            long minVersion,
+            Function<QueryReadResult, QueryReadResult> selector,
+            List<String> fallbackKeys,
+            Function<CacheKey, Map<String, JsonNode>> fallbackLoader) {
+        CacheSnapshot current = bucket == null ? EMPTY_SNAPSHOT : bucket.snapshotRef.get();
+        if (current.version() >= minVersion) {
+            return CompletableFuture.completedFuture(selector.apply(memoryResult(current)));
+        }
+        if (bucket == null) {
+            bucket = bucket(key);
+        }
+
+        CompletableFuture<CacheSnapshot> published = bucket.awaitVersion(minVersion, timeouts.waitForReloadMs());
+        // A barrier read already waits for the version, so its reload skips the coalescing window.
+        reloadCoalescer.submitNow(key, minVersion);
+        return published.thenCompose(snapshot -> snapshot != null
+                ? CompletableFuture.completedFuture(selector.apply(memoryResult(snapshot)))
+                : readFromPostgres(key, minVersion, fallbackKeys, fallbackLoader).thenApply(selector));
+    }
+
+    /**
+     * Serves exactly {@code version}: the current snapshot or one of the {@code retained-versions} published before
+     * it. A version above the resident one is awaited like {@code X-Min-Version}; if the bucket has moved past it
+     * meanwhile, the retained copy is used.
+     *
+     * @throws VersionNotRetainedException when the version is older than every retained snapshot
+     */
+    private CompletableFuture<QueryReadResult> readExact(
+            String tenantId,
+            String dictCode,
+            long version,
+            Function<QueryReadResult, QueryReadResult> selector,
+            List<String> fallbackKeys,
+            Function<CacheKey, Map<String, JsonNode>> fallbackLoader) {
+        CacheKey key = cacheKey(tenantId, dictCode);
+        CacheBucket bucket = cache.get(key);
+        CacheSnapshot exact = bucket == null ? null : bucket.snapshotAt(version);
+        if (exact != null) {
+            return CompletableFuture.completedFuture(selector.apply(memoryResult(exact)));
+        }
+        long current = bucket == null ? 0 : bucket.snapshotRef.get().version();
+        if (version < current) {
+            throw notRetained(bucket, version);
         }
-        return new QueryReadResult(full.version(), full.sourceType(), Collections.singletonMap(key, value));
+        return readAtVersion(tenantId, dictCode, version, Function.identity(), fallbackKeys, fallbackLoader)
+                .thenApply(result -> {
+                    if (result.version() == version) {
+                        return selector.apply(result);
+                    }
+                    CacheBucket reloaded = cache.get(key);
+                    CacheSnapshot retained = reloaded == null ? null : reloaded.snapshotAt(version);
+                    if (retained == null) {
+                        throw notRetained(reloaded, version);
+                    }
+                    return selector.apply(memoryResult(retained));
+                });
     }
 
-    public QueryReadResult readItems(String tenantId, String dictCode, List<String> keys, Long minVersion) {
-        QueryReadResult full = readAll(tenantId, dictCode, minVersion);
-        Map<String, JsonNode> selected = new LinkedHashMap<>();
-        for (String key : keys) {
-            JsonNode value = full.items().get(key);
-            if (value != null) {
-                selected.put(key, value);
+    private VersionNotRetainedException notRetained(CacheBucket bucket, long version) {
+        if (bucket == null) {
+            return new VersionNotRetainedException(version, 0, 0);
+        }
+        List<CacheSnapshot> retained = bucket.retained;
+        long current = bucket.snapshotRef.get().version();
+        long oldest = retained.isEmpty() ? current : retained.get(retained.size() - 1).version();
+        return new VersionNotRetainedException(version, oldest, current);
+    }
+
+    /**
+     * @return {@code null} when the tenant is in the negative cache: it had no committed dictionary at the last
+     * check, so no bucket is created for it
+     */
+    private CacheBucket loadedBucket(CacheKey key) {
+        CacheBucket bucket = cache.get(key);
+        if (bucket == null && isUnknownTenant(key.tenantId())) {
+            return null;
+        }
+        bucket = bucket(key);
+        if (isCold(bucket)) {
+            // The restore or load runs on the reload executor like every other reload; the synchronous read waits.
+            CacheBucket cold = bucket;
+            try {
+                CompletableFuture.runAsync(() -> ensureLoaded(key, cold), cacheReloadExecutor).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
             }
         }
-        return new QueryReadResult(full.version(), full.sourceType(), selected);
+        return bucket;
     }
 
-    public QueryReadResult readAll(String tenantId, String dictCode, Long minVersion) {
+    private boolean isCold(CacheBucket bucket) {
+        return bucket.snapshotRef.get().version() == 0 && !isKnownEmpty(bucket);
+    }
+
+    private CacheBucket bucket(CacheKey key) {
+        CacheBucket bucket = cache.get(key);
+        if (bucket == null) {
+            bucket = cache.computeIfAbsent(key, this::newBucket);
+            evictIfOverBudget(key);
+        }
+        bucket.lastAccessNanos = System.nanoTime();
+        return bucket;
+    }
+
+    private CacheBucket newBucket(CacheKey key) {
+        residentBytes.addAndGet(BUCKET_OVERHEAD_BYTES);
+        return new CacheBucket(dictionaryRegistry.required(key.dictCode()).isPinned());
+    }
+
+    private CacheKey cacheKey(String tenantId, String dictCode) {
         dictionaryRegistry.required(dictCode);
-        CacheKey key = new CacheKey(tenantId, dictCode);
-        CacheBucket bucket = cache.computeIfAbsent(key, ignored -> new CacheBucket());
+        return new CacheKey(tenantId, dictCode);
+    }
 
-        ensureLoaded(key, bucket);
-        CacheSnapshot current = bucket.snapshotRef.get();
+    private QueryReadResult memoryResult(CacheSnapshot snapshot) {
+        return new QueryReadResult(snapshot.version(), DataSourceType.MEMORY, snapshot.items(), snapshot);
+    }
+
+    private CompletableFuture<QueryReadResult> readFromPostgres(
+            CacheKey key,
+            long minVersion,
+            List<String> keys,
+            Function<CacheKey, Map<String, JsonNode>> loader) {
+        return CompletableFuture
+                .supplyAsync(() -> committedVersionAtLeast(key, minVersion), cacheReloadExecutor)
+                .thenCompose(committedVersion -> sharedFallback(new FallbackKey(key, committedVersion, keys), loader));
+    }
+
+    private long committedVersionAtLeast(CacheKey key, long minVersion) {
+        long committedVersion = dictionaryProvider.getCommittedVersion(key.tenantId(), key.dictCode());
+        if (committedVersion < minVersion) {
+            throw new VersionNotCommittedException(minVersion, committedVersion);
+        }
+        return committedVersion;
+    }
 
-        if (minVersion == null || current.version() >= minVersion) {
-            return new QueryReadResult(current.version(), DataSourceType.MEMORY, current.items());
+    /**
+     * Requests that miss the barrier for the same data at the same committed version share one PostgreSQL load;
+     * above {@code maxConcurrentFallbacks} distinct loads per pod the request is rejected instead of queued.
+     */
+    private CompletableFuture<QueryReadResult> sharedFallback(
+            FallbackKey flightKey,
+            Function<CacheKey, Map<String, JsonNode>> loader) {
+        CompletableFuture<QueryReadResult> inFlight = fallbackFlights.get(flightKey);
+        if (inFlight != null) {
+            fallbacksShared.increment();
+            return inFlight;
+        }
+        if (!fallbackPermits.tryAcquire()) {
+            fallbacksRejected.increment();
+            return CompletableFuture.failedFuture(new FallbackOverloadedException(
+                    "Too many concurrent PostgreSQL fallback reads, retry later"));
         }
 
-        waitForVersion(key, bucket, minVersion);
-        current = bucket.snapshotRef.get();
-        if (current.version() >= minVersion) {
-            return new QueryReadResult(current.version(), DataSourceType.MEMORY, current.items());
+        CompletableFuture<QueryReadResult> flight = new CompletableFuture<>();
+        inFlight = fallbackFlights.putIfAbsent(flightKey, flight);
+        if (inFlight != null) {
+            fallbackPermits.release();
+            fallbacksShared.increment();
+            return inFlight;
         }
 
-        long committedVersion = dictionaryProvider.getCommittedVersion(tenantId, dictCode);
-        if (committedVersion >= minVersion) {
-            Map<String, JsonNode> fallback = Map.copyOf(dictionaryProvider.loadAll(tenantId, dictCode));
-            refreshAsync(key, committedVersion);
-            return new QueryReadResult(committedVersion, DataSourceType.POSTGRES_FALLBACK, fallback);
+        CacheKey key = flightKey.cacheKey();
+        try {
+            Map<String, JsonNode> items = loader.apply(key);
+            fallbacksLoaded.increment();
+            flight.complete(new QueryReadResult(flightKey.version(), DataSourceType.POSTGRES_FALLBACK, items));
+            refreshAsync(key, flightKey.version());
+        } catch (RuntimeException e) {
+            flight.completeExceptionally(e);
+        } finally {
+            fallbackFlights.remove(flightKey, flight);
+            fallbackPermits.release();
         }
+        return flight;
+    }
 
-        throw new VersionNotCommittedException(minVersion, committedVersion);
+    private static Counter fallbackCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("postgres.fallback.reads")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
-    public long currentVersion(String tenantId, String dictCode) {
-        dictionaryRegistry.required(dictCode);
-        CacheKey key = new CacheKey(tenantId, dictCode);
-        CacheBucket bucket = cache.computeIfAbsent(key, ignored -> new CacheBucket());
-        ensureLoaded(key, bucket);
-        return bucket.snapshotRef.get().version();
+    private QueryReadResult selectItem(QueryReadResult full, String key) {
+        if (!full.items().containsKey(key)) {
+            throw new NotFoundException("Item not found: " + key);
+        }
+        return new QueryReadResult(full.version(), full.sourceType(), new SelectedItems(full.items(), List.of(key)),
+                full.snapshot());
+    }
+
+    private QueryReadResult selectItems(QueryReadResult full, List<String> keys) {
+        return new QueryReadResult(full.version(), full.sourceType(), new SelectedItems(full.items(), keys),
+                full.snapshot());
+    }
+
+    private static String rangeBound(KeyType keyType, String bound, String name) {
+        if (bound == null || keyType != KeyType.LONG) {
+            return bound;
+        }
+        try {
+            return Long.toString(Long.parseLong(bound));
+        } catch (NumberFormatException e) {
+            throw new BadRequestException(name + " must be a number for key-type LONG: " + bound);
+        }
+    }
+
+    private Function<QueryReadResult, QueryReadResult> whereSelector(String dictCode, String indexName, String value) {
+        RefDataProperties.IndexField index = dictionaryRegistry.requiredIndex(dictCode, indexName);
+        String canonical = ItemIndexes.queryValue(index, value);
+        return full -> {
+            ItemIndexes indexes = full.snapshot() == null ? null : full.snapshot().indexes();
+            Set<String> indexed = indexes == null ? null : indexes.keys(indexName, canonical);
+            Iterable<String> keys = indexed != null ? indexed : ItemIndexes.scan(index, full.items(), canonical);
+            return new QueryReadResult(full.version(), full.sourceType(), new SelectedItems(full.items(), keys),
+                    full.snapshot());
+        };
     }
 
     private void onInvalidation(InvalidationEvent event) {
         CacheKey key = new CacheKey(event.tenantId(), event.dictCode());
+        // Foreign tenants are served by their owner; one still resident here (owner unreachable) keeps refreshing.
+        if (!tenantOwnership.owns(event.tenantId()) && !cache.containsKey(key)) {
+            return;
+        }
+        unknownTenants.remove(event.tenantId());
         refreshAsync(key, event.version());
     }
 
     private void refreshAsync(CacheKey key, long targetVersion) {
-        cacheReloadExecutor.submit(() -> {
-            CacheBucket bucket = cache.computeIfAbsent(key, ignored -> new CacheBucket());
-            reloadIfNeeded(key, bucket, targetVersion);
-        });
+        reloadCoalescer.submit(key, targetVersion);
+    }
+
+    private void reloadCoalesced(CacheKey key, long targetVersion) {
+        CacheBucket bucket = cache.get(key);
+        if (bucket == null) {
+            // Not resident on this pod (never read or evicted); the next read loads the committed version.
+            return;
+        }
+        if (!reloadIfNeeded(key, bucket, targetVersion)) {
+            // A reload already in flight may have read the committed version before this target was published.
+            refreshAsync(key, targetVersion);
+        }
     }
 
     private void ensureLoaded(CacheKey key, CacheBucket bucket) {
-        if (bucket.snapshotRef.get().version() > 0) {
+        if (!isCold(bucket)) {
+            return;
+        }
+        if (restorePersisted(key, bucket)) {
             return;
         }
         reloadIfNeeded(key, bucket, 1);
     }
 
-    private void waitForVersion(CacheKey key, CacheBucket bucket, long minVersion) {
-        long deadline = System.nanoTime() + timeouts.waitForReloadMs() * 1_000_000L;
-        while (System.nanoTime() < deadline) {
-            if (bucket.snapshotRef.get().version() >= minVersion) {
-                return;
+    /**
+     * Publishes the locally persisted snapshot of a cold bucket instead of loading it from PostgreSQL, then catches
+     * up to the committed version through the regular reload path, incrementally when the dictionary allows it.
+     */
+    private boolean restorePersisted(CacheKey key, CacheBucket bucket) {
+        if (!snapshotFileStore.enabled() || bucket.restoreAttempted || !bucket.reloadLock.tryLock()) {
+            return false;
+        }
+
+        CacheSnapshot restored;
+        try {
+            if (bucket.restoreAttempted || bucket.snapshotRef.get().version() > 0) {
+                return bucket.snapshotRef.get().version() > 0;
             }
-            reloadIfNeeded(key, bucket, minVersion);
-            if (bucket.snapshotRef.get().version() >= minVersion) {
-                return;
+            bucket.restoreAttempted = true;
+            Optional<SnapshotFileStore.PersistedSnapshot> persisted =
+                    snapshotFileStore.read(key.tenantId(), key.dictCode());
+            if (persisted.isEmpty()) {
+                return false;
+            }
+            try {
+                restored = restoredSnapshot(key, persisted.get());
+            } catch (RuntimeException e) {
+                log.warn("Unable to restore persisted snapshot tenant={} dict={}", key.tenantId(), key.dictCode(), e);
+                return false;
             }
-            sleepQuietly(5);
+            publish(key, bucket, restored);
+        } finally {
+            bucket.reloadLock.unlock();
+            bucket.completeWaiters();
+        }
+        log.debug("Restored persisted snapshot tenant={} dict={} version={}",
+                key.tenantId(), key.dictCode(), restored.version());
+        refreshAsync(key, restored.version() + 1);
+        evictIfOverBudget(key);
+        return true;
+    }
+
+    /**
+     * @return {@code false} only when another reload of the bucket holds the lock
+     */
+    private boolean reloadIfNeeded(CacheKey key, CacheBucket bucket, long targetVersion) {
+        SharedWait shared = null;
+        while (true) {
+            long pendingVersion = reloadLocked(key, bucket, targetVersion, shared);
+            if (pendingVersion < 0) {
+                return false;
+            }
+            if (pendingVersion == 0) {
+                return true;
+            }
+            // Another pod is loading the version into the shared cache; wait for it with the bucket unlocked.
+            shared = new SharedWait(sharedSnapshotCache.await(key.tenantId(), key.dictCode(), pendingVersion));
         }
     }
 
-    private void reloadIfNeeded(CacheKey key, CacheBucket bucket, long targetVersion) {
+    /**
+     * @param shared outcome of the previous wait for the shared snapshot, or {@code null} before any wait
+     * @return {@code 0} when the bucket is up to date, {@code -1} when another reload holds the lock, otherwise the
+     * version another pod is loading into the shared cache
+     */
+    private long reloadLocked(CacheKey key, CacheBucket bucket, long targetVersion, SharedWait shared) {
         if (bucket.snapshotRef.get().version() >= targetVersion) {
-            return;
+            return 0;
         }
 
+        // Bounds concurrent database reloads when the reload executor runs on virtual threads. The permit is taken
+        // before the bucket lock, so a reload queued for a permit never holds up other readers of its bucket.
+        reloadPermits.acquireUninterruptibly();
         if (!bucket.reloadLock.tryLock()) {
-            return;
+            reloadPermits.release();
+            return -1;
         }
-
         try {
             CacheSnapshot current = bucket.snapshotRef.get();
             if (current.version() >= targetVersion) {
-                return;
+                return 0;
             }
 
             long committedVersion = dictionaryProvider.getCommittedVersion(key.tenantId(), key.dictCode());
+            if (committedVersion == 0) {
+                markEmpty(key, bucket);
+                return 0;
+            }
             if (committedVersion <= current.version()) {
-                return;
+                return 0;
+            }
+
+            CacheSnapshot next = null;
+            if (canPatch(key, current, committedVersion)) {
+                next = patchSnapshot(key, current);
             }
+            if (next == null) {
+                next = loadSnapshot(key, committedVersion, shared);
+            }
+            if (next == null) {
+                return committedVersion;
+            }
+            publish(key, bucket, next);
+            snapshotFileStore.persist(key.tenantId(), key.dictCode(), next);
+        } finally {
+            bucket.reloadLock.unlock();
+            reloadPermits.release();
+            bucket.completeWaiters();
+        }
+        evictIfOverBudget(key);
+        return 0;
+    }
+
+    private void publish(CacheKey key, CacheBucket bucket, CacheSnapshot next) {
+        RefDataProperties.Dictionary dictionary = dictionaryRegistry.required(key.dictCode());
+        if (next.indexes() == null) {
+            next.indexes(ItemIndexes.build(dictionary.getIndexes(), next.items()));
+        }
+        if (dictionary.isSortedKeys() && next.sortedKeys() == null) {
+            next.sortedKeys(SortedKeys.build(next.items().keySet(), dictionary.getKeyType()));
+        }
+        List<CacheSnapshot> dropped = bucket.publish(next, properties.getCache().getRetainedVersions());
+        if (!bucket.evicted) {
+            next.hold(residentBytes::addAndGet);
+            dropped.forEach(CacheSnapshot::release);
+            // A retained version patched into its successor only adds the entries the successor replaced.
+            long accounted = BUCKET_OVERHEAD_BYTES + next.estimatedBytes() + next.indexBytes();
+            CacheSnapshot newer = next;
+            for (CacheSnapshot retained : bucket.retained) {
+                accounted += retained.bytesNotSharedWith(newer);
+                newer = retained;
+            }
+            residentBytes.addAndGet(accounted - bucket.accountedBytes);
+            bucket.accountedBytes = accounted;
+        }
+    }
+
+    /**
+     * Drops the least recently read unpinned buckets until resident bytes, plus the versions only page cursors
+     * still hold, fall under the low watermark. Buckets that are reloading or have pending version waiters are
+     * skipped.
+     */
+    private void evictIfOverBudget(CacheKey retainedKey) {
+        if (memoryBudgetBytes <= 0 || residentBytes.get() + pinnedOnlyBytes() <= memoryBudgetBytes) {
+            return;
+        }
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+
+        try {
+            long target = (long) (memoryBudgetBytes * EVICTION_LOW_WATERMARK);
+            List<EvictionCandidate> candidates = cache.entrySet().stream()
+                    .filter(entry -> !entry.getValue().pinned && !entry.getKey().equals(retainedKey))
+                    .map(entry -> new EvictionCandidate(entry.getKey(), entry.getValue(),
+                            entry.getValue().lastAccessNanos))
+                    .sorted(Comparator.comparingLong(EvictionCandidate::lastAccessNanos))
+                    .toList();
+            for (EvictionCandidate candidate : candidates) {
+                if (residentBytes.get() + pinnedOnlyBytes() <= target) {
+                    break;
+                }
+                evict(candidate.key(), candidate.bucket());
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Drops buckets of tenants the rebuilt shard ring assigned to another pod; their reads are routed there now.
+     */
+    private void dropForeignTenants() {
+        cache.forEach((key, bucket) -> {
+            if (!tenantOwnership.owns(key.tenantId())) {
+                evict(key, bucket);
+            }
+        });
+    }
 
-            Map<String, JsonNode> loaded = Map.copyOf(dictionaryProvider.loadAll(key.tenantId(), key.dictCode()));
-            bucket.snapshotRef.set(new CacheSnapshot(committedVersion, loaded));
+    private void evict(CacheKey key, CacheBucket bucket) {
+        if (!bucket.waiters.isEmpty() || !bucket.reloadLock.tryLock()) {
+            return;
+        }
+        try {
+            if (!cache.remove(key, bucket)) {
+                return;
+            }
+            bucket.evicted = true;
+            residentBytes.addAndGet(-bucket.accountedBytes);
+            bucket.snapshotRef.get().release();
+            bucket.retained.forEach(CacheSnapshot::release);
+            evictions.increment();
+            log.debug("Evicted cache bucket tenant={} dict={} bytes={}",
+                    key.tenantId(), key.dictCode(), bucket.accountedBytes);
         } finally {
             bucket.reloadLock.unlock();
         }
     }
 
-    private void sleepQuietly(long millis) {
+    private void markEmpty(CacheKey key, CacheBucket bucket) {
+        long now = System.nanoTime();
+        bucket.emptyCheckedAtNanos = now;
+        if (!dictionaryProvider.hasCommittedDictionaries(key.tenantId())) {
+            unknownTenants.put(key.tenantId(), now);
+        }
+    }
+
+    private boolean isKnownEmpty(CacheBucket bucket) {
+        long checkedAt = bucket.emptyCheckedAtNanos;
+        return checkedAt != 0 && !expired(checkedAt);
+    }
+
+    private boolean isUnknownTenant(String tenantId) {
+        Long checkedAt = unknownTenants.get(tenantId);
+        if (checkedAt == null) {
+            return false;
+        }
+        if (expired(checkedAt)) {
+            unknownTenants.remove(tenantId);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean expired(long checkedAtNanos) {
+        return System.nanoTime() - checkedAtNanos > TimeUnit.MILLISECONDS.toNanos(timeouts.emptyRecheckMs());
+    }
+
+    private static Map<String, Long> boundedLruMap(int maxSize) {
+        return Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > maxSize;
+            }
+        });
+    }
+
+    private boolean canPatch(CacheKey key, CacheSnapshot current, long targetVersion) {
+        if (current.version() == 0) {
+            return false;
+        }
+        if (dictionaryRegistry.required(key.dictCode()).getReloadOnEvent() != ReloadMode.INCREMENTAL) {
+            return false;
+        }
+        return targetVersion - current.version() <= properties.getCache().getIncrementalMaxLagVersions();
+    }
+
+    /**
+     * @return {@code null} when another pod is loading the version into the shared cache
+     */
+    private CacheSnapshot loadSnapshot(CacheKey key, long committedVersion, SharedWait shared) {
+        RefDataProperties.Dictionary dictionary = dictionaryRegistry.required(key.dictCode());
+        if (sharedSnapshotCache.enabled()) {
+            // Rows are shared as raw bytes whatever the format; each pod builds its own representation.
+            DictionarySnapshotRecord<byte[]> loaded;
+            if (shared != null && shared.snapshot() != null && shared.snapshot().version() >= committedVersion) {
+                loaded = shared.snapshot();
+            } else if (shared != null && shared.snapshot() == null) {
+                // The other pod's load did not show up in time.
+                loaded = dictionaryProvider.loadCommittedRaw(key.tenantId(), key.dictCode());
+            } else {
+                loaded = sharedSnapshotCache.load(
+                        key.tenantId(), key.dictCode(), committedVersion,
+                        () -> dictionaryProvider.loadCommittedRaw(key.tenantId(), key.dictCode()));
+                if (loaded == null) {
+                    return null;
+                }
+            }
+            return rawSnapshot(dictionary, loaded.version(), loaded.items());
+        }
+        if (dictionary.getSnapshotFormat() == SnapshotFormat.TREE) {
+            DictionarySnapshotRecord<JsonNode> loaded =
+                    dictionaryProvider.loadCommitted(key.tenantId(), key.dictCode());
+            return treeSnapshot(dictionary, loaded.version(), loaded.items());
+        }
+        if (dictionary.getSnapshotFormat() == SnapshotFormat.COLUMNAR) {
+            // Rows are parsed one at a time into the columns, see ItemsBuilder#forDictionary.
+            DictionarySnapshotRecord<JsonNode> loaded =
+                    dictionaryProvider.loadCommitted(key.tenantId(), key.dictCode());
+            return new CacheSnapshot(loaded.version(), loaded.items());
+        }
+        DictionarySnapshotRecord<byte[]> loaded = dictionaryProvider.loadCommittedRaw(key.tenantId(), key.dictCode());
+        return rawSnapshot(dictionary, loaded.version(), loaded.items());
+    }
+
+    private CacheSnapshot restoredSnapshot(CacheKey key, SnapshotFileStore.PersistedSnapshot persisted) {
+        RefDataProperties.Dictionary dictionary = dictionaryRegistry.required(key.dictCode());
+        if (dictionary.getSnapshotFormat() == SnapshotFormat.OFF_HEAP) {
+            // Serves straight from the mapped file.
+            return new CacheSnapshot(persisted.version(), persisted.payloads(), objectMapper);
+        }
+        if (dictionary.getSnapshotFormat() == SnapshotFormat.COLUMNAR) {
+            ItemsBuilder<JsonNode> rows = ItemsBuilder.forDictionary(dictionary, false);
+            persisted.payloads().forEach((itemKey, payload) -> rows.put(itemKey, parse(payload)));
+            return new CacheSnapshot(persisted.version(), rows.build());
+        }
+        ItemsBuilder<byte[]> items = ItemsBuilder.forDictionary(dictionary, true);
+        persisted.payloads().forEach((itemKey, payload) -> {
+            byte[] bytes = new byte[payload.remaining()];
+            payload.get(bytes);
+            items.put(itemKey, bytes);
+        });
+        return rawSnapshot(dictionary, persisted.version(), items.build());
+    }
+
+    // Full loads already arrive in this layout (see ItemsBuilder), then of() returns them as they are.
+    private CacheSnapshot treeSnapshot(RefDataProperties.Dictionary dictionary, long version,
+                                       Map<String, JsonNode> items) {
+        return new CacheSnapshot(version,
+                dictionary.getKeyType() == KeyType.LONG ? LongKeyMap.of(items) : PersistentHashMap.of(items));
+    }
+
+    private CacheSnapshot rawSnapshot(RefDataProperties.Dictionary dictionary, long version,
+                                      Map<String, byte[]> items) {
+        return switch (dictionary.getSnapshotFormat()) {
+            case TREE -> treeSnapshot(dictionary, version, parseAll(dictionary, items));
+            case COLUMNAR -> new CacheSnapshot(version,
+                    ColumnarItems.decode(dictionary.getSchema(), items, objectMapper));
+            // Keys are already packed as bytes outside the heap.
+            case OFF_HEAP -> CacheSnapshot.offHeap(version, items, objectMapper);
+            case RAW -> CacheSnapshot.raw(version,
+                    dictionary.getKeyType() == KeyType.LONG ? LongKeyMap.of(items) : PersistentHashMap.of(items),
+                    objectMapper);
+        };
+    }
+
+    private JsonNode parse(ByteBuffer payload) {
         try {
-            Thread.sleep(millis);
-        } catch (InterruptedException ie) {
-            Thread.currentThread().interrupt();
+            return objectMapper.readTree(new ByteBufferBackedInputStream(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Persisted payload is not valid JSON", e);
+        }
+    }
+
+    private Map<String, JsonNode> parseAll(RefDataProperties.Dictionary dictionary, Map<String, byte[]> items) {
+        ItemsBuilder<JsonNode> trees = ItemsBuilder.forDictionary(dictionary, false);
+        items.forEach((itemKey, payload) -> {
+            try {
+                trees.put(itemKey, objectMapper.readTree(payload));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Persisted payload is not valid JSON", e);
+            }
+        });
+        return trees.build();
+    }
+
+    /**
+     * The patched snapshot takes the version the changes were read at, which may already be past the committed
+     * version seen by the caller.
+     *
+     * @return {@code null} when the change log does not cover the lag and the bucket needs a full reload
+     */
+    private CacheSnapshot patchSnapshot(CacheKey key, CacheSnapshot current) {
+        if (current.payloads() != null) {
+            Optional<DictionaryPatchRecord<byte[]>> patch =
+                    dictionaryProvider.loadChangesRaw(key.tenantId(), key.dictCode(), current.version());
+            if (patch.isEmpty()) {
+                return incompleteChangeLog(key, current);
+            }
+            DictionaryPatchRecord<byte[]> changes = patch.get();
+            return withPatchedIndexes(current, current.patchedPayloads(
+                    changes.version(), changes.changedKeys(), changes.items(), objectMapper), changes.changedKeys());
+        }
+        Optional<DictionaryPatchRecord<JsonNode>> patch =
+                dictionaryProvider.loadChanges(key.tenantId(), key.dictCode(), current.version());
+        if (patch.isEmpty()) {
+            return incompleteChangeLog(key, current);
+        }
+        DictionaryPatchRecord<JsonNode> changes = patch.get();
+        return withPatchedIndexes(current,
+                current.patchedItems(changes.version(), changes.changedKeys(), changes.items()), changes.changedKeys());
+    }
+
+    private static CacheSnapshot incompleteChangeLog(CacheKey key, CacheSnapshot current) {
+        log.debug("Change log incomplete, full reload tenant={} dict={} from={}",
+                key.tenantId(), key.dictCode(), current.version());
+        return null;
+    }
+
+    private static CacheSnapshot withPatchedIndexes(CacheSnapshot current, CacheSnapshot next, Set<String> changed) {
+        if (current.indexes() != null) {
+            next.indexes(current.indexes().patched(current.items(), next.items(), changed));
         }
+        if (current.sortedKeys() != null) {
+            next.sortedKeys(current.sortedKeys().patched(changed, next.items()));
+        }
+        return next;
     }
 
     @PreDestroy
     public void shutdown() {
+        reloadCoalescer.shutdown();
         cacheReloadExecutor.shutdown();
     }
 
@@ -187,8 +1028,186 @@ public class QueryService {
         private final AtomicReference<CacheSnapshot> snapshotRef =
                 new AtomicReference<>(new CacheSnapshot(0, Map.of()));
         private final ReentrantLock reloadLock = new ReentrantLock();
+        private final Queue<VersionWaiter> waiters = new ConcurrentLinkedQueue<>();
+        private final boolean pinned;
+        private volatile long lastAccessNanos = System.nanoTime();
+        // Non-zero while the committed version was 0 at the last check.
+        private volatile long emptyCheckedAtNanos;
+        private volatile boolean restoreAttempted;
+        // Versions published before the current one, newest first; replaced under reloadLock.
+        private volatile List<CacheSnapshot> retained = List.of();
+        // Guarded by reloadLock.
+        private long accountedBytes = BUCKET_OVERHEAD_BYTES;
+        private boolean evicted;
+
+        private CacheBucket(boolean pinned) {
+            this.pinned = pinned;
+        }
+
+        /**
+         * @return snapshots this bucket no longer holds
+         */
+        private List<CacheSnapshot> publish(CacheSnapshot next, int retainedVersions) {
+            CacheSnapshot previous = snapshotRef.getAndSet(next);
+            List<CacheSnapshot> dropped = new ArrayList<>();
+            if (retainedVersions > 0 && previous.version() > 0 && previous.version() < next.version()) {
+                List<CacheSnapshot> kept = new ArrayList<>(retainedVersions);
+                kept.add(previous);
+                for (CacheSnapshot older : retained) {
+                    if (kept.size() < retainedVersions) {
+                        kept.add(older);
+                    } else {
+                        dropped.add(older);
+                    }
+                }
+                retained = List.copyOf(kept);
+            } else {
+                dropped.add(previous);
+            }
+            return dropped;
+        }
+
+        /**
+         * Completes the waiters the current snapshot satisfies. Called after the reload lock and permit are
+         * released, because completion runs the waiters' response stages on the calling thread.
+         */
+        private void completeWaiters() {
+            CacheSnapshot current = snapshotRef.get();
+            waiters.removeIf(waiter -> waiter.minVersion() <= current.version() && waiter.future().complete(current));
+        }
+
+        /**
+         * @return the current or a retained snapshot of exactly {@code version}, or {@code null}
+         */
+        private CacheSnapshot snapshotAt(long version) {
+            CacheSnapshot current = snapshotRef.get();
+            if (current.version() == version) {
+                return current;
+            }
+            for (CacheSnapshot older : retained) {
+                if (older.version() == version) {
+                    return older;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The returned future completes with the first published snapshot at or above {@code minVersion},
+         * or with {@code null} once {@code timeoutMs} elapses.
+         */
+        private CompletableFuture<CacheSnapshot> awaitVersion(long minVersion, long timeoutMs) {
+            VersionWaiter waiter = new VersionWaiter(minVersion, new CompletableFuture<>());
+            waiters.add(waiter);
+            CacheSnapshot current = snapshotRef.get();
+            if (current.version() >= minVersion && waiter.future().complete(current)) {
+                waiters.remove(waiter);
+                return waiter.future();
+            }
+            return waiter.future()
+                    .completeOnTimeout(null, timeoutMs, TimeUnit.MILLISECONDS)
+                    .whenComplete((snapshot, ex) -> {
+                        if (snapshot == null) {
+                            waiters.remove(waiter);
+                        }
+                    });
+        }
+    }
+
+    private record VersionWaiter(long minVersion, CompletableFuture<CacheSnapshot> future) {
+    }
+
+    /**
+     * Releases page cursors idle past their TTL even when no paged read comes in, drops empty buckets, then enforces
+     * the budget their versions and memoized bodies were counted in.
+     */
+    @Scheduled(fixedDelayString = "#{@refDataTimeouts.pageCursorTtlMs()}")
+    public void sweepPinnedSnapshots() {
+        expirePinnedSnapshots();
+        dropEmptyBuckets();
+        evictIfOverBudget(null);
+    }
+
+    /**
+     * Drops buckets without a committed version once their emptiness check expired or their tenant is in the
+     * negative cache, so reads of random unknown tenants do not pile up buckets. A later read creates the bucket
+     * again.
+     */
+    private void dropEmptyBuckets() {
+        cache.forEach((key, bucket) -> {
+            long checkedAt = bucket.emptyCheckedAtNanos;
+            if (checkedAt == 0 || bucket.snapshotRef.get().version() > 0
+                    || (!expired(checkedAt) && !isUnknownTenant(key.tenantId()))) {
+                return;
+            }
+            if (!bucket.waiters.isEmpty() || !bucket.reloadLock.tryLock()) {
+                return;
+            }
+            try {
+                if (bucket.snapshotRef.get().version() == 0 && cache.remove(key, bucket)) {
+                    bucket.evicted = true;
+                    residentBytes.addAndGet(-bucket.accountedBytes);
+                }
+            } finally {
+                bucket.reloadLock.unlock();
+            }
+        });
+    }
+
+    private void expirePinnedSnapshots() {
+        long expiredBefore = System.nanoTime()
+                - TimeUnit.MILLISECONDS.toNanos(properties.getQuery().getPageCursorTtlMs());
+        pinnedSnapshots.forEach((version, pinned) -> {
+            if (pinned.lastAccessNanos - expiredBefore < 0 && pinnedSnapshots.remove(version, pinned)) {
+                pinned.snapshot.release();
+            }
+        });
+    }
+
+    /**
+     * Heap of pinned versions that no bucket holds any more: swapped out of retention, evicted, or wrapped fallback
+     * reads. Versions a bucket still holds are already in {@code residentBytes}.
+     */
+    private long pinnedOnlyBytes() {
+        long bytes = 0;
+        for (Map.Entry<PinnedVersion, PinnedSnapshot> entry : pinnedSnapshots.entrySet()) {
+            CacheSnapshot snapshot = entry.getValue().snapshot;
+            CacheBucket bucket = cache.get(entry.getKey().cacheKey());
+            if (bucket == null || bucket.snapshotAt(snapshot.version()) != snapshot) {
+                bytes += snapshot.estimatedBytes() + snapshot.indexBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private record PinnedVersion(CacheKey cacheKey, long version) {
+    }
+
+    private static final class PinnedSnapshot {
+        private final CacheSnapshot snapshot;
+        private final DataSourceType sourceType;
+        private volatile long lastAccessNanos = System.nanoTime();
+
+        private PinnedSnapshot(CacheSnapshot snapshot, DataSourceType sourceType) {
+            this.snapshot = snapshot;
+            this.sourceType = sourceType;
+        }
+
+        private QueryReadResult read() {
+            lastAccessNanos = System.nanoTime();
+            return new QueryReadResult(snapshot.version(), sourceType, snapshot.items(), snapshot);
+        }
+    }
+
+    private record FallbackKey(CacheKey cacheKey, long version, List<String> keys) {
+    }
+
+    private record EvictionCandidate(CacheKey key, CacheBucket bucket, long lastAccessNanos) {
     }
 
-    private record CacheSnapshot(long version, Map<String, JsonNode> items) {
+    /**
+     * @param snapshot shared snapshot another pod published, or {@code null} when the wait timed out
+     */
+    private record SharedWait(DictionarySnapshotRecord<byte[]> snapshot) {
     }
 }
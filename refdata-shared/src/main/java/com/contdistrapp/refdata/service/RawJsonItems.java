@@ -0,0 +1,91 @@
+package com.contdistrapp.refdata.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Read-only {@code Map<String, JsonNode>} view over a {@link PayloadStore}. Key lookups never parse; a value is parsed
+ * on every {@link #get(Object)} and is not retained, so only callers that inspect payload content pay for a tree.
+ */
+final class RawJsonItems extends AbstractMap<String, JsonNode> {
+
+    private final PayloadStore payloads;
+    private final ObjectMapper objectMapper;
+
+    RawJsonItems(PayloadStore payloads, ObjectMapper objectMapper) {
+        this.payloads = payloads;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public int size() {
+        return payloads.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof String value && payloads.containsKey(value);
+    }
+
+    @Override
+    public JsonNode get(Object key) {
+        if (!(key instanceof String value)) {
+            return null;
+        }
+        ByteBuffer payload = payloads.payload(value);
+        return payload == null ? null : parse(payload);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return payloads.keys();
+    }
+
+    @Override
+    public Set<Entry<String, JsonNode>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, JsonNode>> iterator() {
+                Iterator<String> keys = payloads.keys().iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keys.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, JsonNode> next() {
+                        String key = keys.next();
+                        return new SimpleImmutableEntry<>(key, get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return payloads.size();
+            }
+        };
+    }
+
+    private JsonNode parse(ByteBuffer payload) {
+        try {
+            if (payload.hasArray()) {
+                return objectMapper.readTree(payload.array(), payload.arrayOffset() + payload.position(),
+                        payload.remaining());
+            }
+            return objectMapper.readTree(new ByteBufferBackedInputStream(payload));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cached payload is not valid JSON", e);
+        }
+    }
+}
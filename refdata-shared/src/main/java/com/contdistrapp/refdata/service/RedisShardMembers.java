@@ -0,0 +1,94 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Pods heartbeat their {@code self-url} into the sorted set {@code members-key} scored by the heartbeat time; members
+ * not seen for {@code member-ttl-ms} drop out of the ring. When Redis is unreachable the last known members stay in
+ * effect.
+ */
+@Component
+@ConditionalOnProperty(prefix = "refdata.sharding", name = "membership", havingValue = "REDIS")
+@ConditionalOnRefdataRole({"query-api"})
+public class RedisShardMembers implements ShardMembers {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisShardMembers.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final RefDataProperties.Sharding settings;
+    private final List<Consumer<Set<String>>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile Set<String> members = Set.of();
+
+    public RedisShardMembers(StringRedisTemplate redisTemplate, RefDataProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.settings = properties.getSharding();
+    }
+
+    @PostConstruct
+    public void join() {
+        heartbeat();
+    }
+
+    @Override
+    public Set<String> current() {
+        return members;
+    }
+
+    @Override
+    public void subscribe(Consumer<Set<String>> listener) {
+        listeners.add(listener);
+    }
+
+    @Scheduled(fixedDelayString = "#{@refDataTimeouts.shardHeartbeatMs()}")
+    public void heartbeat() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            String key = settings.getMembersKey();
+            redisTemplate.opsForZSet().add(key, TenantOwnership.normalize(settings.getSelfUrl()), now);
+            redisTemplate.opsForZSet().removeRangeByScore(key, Double.NEGATIVE_INFINITY,
+                    now - settings.getMemberTtlMs());
+            Set<String> alive = redisTemplate.opsForZSet().range(key, 0, -1);
+            Set<String> next = alive == null ? Set.of() : Set.copyOf(alive);
+            if (!next.equals(members)) {
+                log.info("Shard members changed from {} to {}", members, next);
+                members = next;
+                listeners.forEach(listener -> listener.accept(next));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Shard membership heartbeat failed, keeping members {}", members, e);
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!settings.isEnabled()) {
+            return;
+        }
+        try {
+            redisTemplate.opsForZSet().remove(
+                    settings.getMembersKey(),
+                    TenantOwnership.normalize(settings.getSelfUrl()));
+        } catch (DataAccessException e) {
+            log.debug("Unable to leave shard ring, the entry expires after member-ttl-ms", e);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.contdistrapp.refdata.persistence.DictionarySnapshotRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Publishes gzip-compressed raw snapshots under {@code <prefix><tenant>:<DICT>:<version>}. The pod that takes the
+ * lock {@code ...:<version>:lock} runs {@code loadSql}; the others release their bucket lock and poll for the entry
+ * up to {@code snapshotWaitMs}, then load from PostgreSQL themselves. Redis errors never fail a load, they only cost
+ * the shared read: when the lock itself cannot be taken every pod loads from PostgreSQL, as without the cache.
+ */
+@Component
+@ConditionalOnProperty(prefix = "refdata.redis", name = "snapshot-cache-enabled", havingValue = "true")
+@ConditionalOnRefdataRole({"query-api"})
+public class RedisSharedSnapshotCache implements SharedSnapshotCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisSharedSnapshotCache.class);
+
+    private static final int MAGIC = 0x52445332;
+    private static final long POLL_INTERVAL_MS = 50;
+    private static final long LOCK_FAILURE_LOG_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final RedisScript<Long> RELEASE_LOCK = new DefaultRedisScript<>("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+              return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final DictionaryRegistry dictionaryRegistry;
+    private final RefDataProperties.Redis settings;
+    private final AtomicLong lockFailureLoggedAtNanos =
+            new AtomicLong(System.nanoTime() - LOCK_FAILURE_LOG_INTERVAL_NANOS);
+
+    public RedisSharedSnapshotCache(
+            StringRedisTemplate redisTemplate,
+            DictionaryRegistry dictionaryRegistry,
+            RefDataProperties properties) {
+        this.redisTemplate = redisTemplate;
+        this.dictionaryRegistry = dictionaryRegistry;
+        this.settings = properties.getRedis();
+    }
+
+    @Override
+    public boolean enabled() {
+        return true;
+    }
+
+    @Override
+    public DictionarySnapshotRecord<byte[]> load(
+            String tenantId,
+            String dictCode,
+            long version,
+            Supplier<DictionarySnapshotRecord<byte[]>> loader) {
+        String key = key(tenantId, dictCode, version);
+        RefDataProperties.Dictionary dictionary = dictionaryRegistry.required(dictCode);
+        DictionarySnapshotRecord<byte[]> shared = get(key, dictionary);
+        if (shared != null) {
+            return shared;
+        }
+
+        String lockKey = key + ":lock";
+        String token = UUID.randomUUID().toString();
+        if (tryLock(lockKey, token)) {
+            try {
+                DictionarySnapshotRecord<byte[]> loaded = loader.get();
+                // The load may have read a newer version; pods polling for the requested one must still find it.
+                put(loaded.version() == version
+                        ? List.of(key)
+                        : List.of(key, key(tenantId, dictCode, loaded.version())), loaded);
+                return loaded;
+            } finally {
+                unlock(lockKey, token);
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public DictionarySnapshotRecord<byte[]> await(String tenantId, String dictCode, long version) {
+        String key = key(tenantId, dictCode, version);
+        RefDataProperties.Dictionary dictionary = dictionaryRegistry.required(dictCode);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(settings.getSnapshotWaitMs());
+        while (System.nanoTime() < deadline) {
+            try {
+                Thread.sleep(POLL_INTERVAL_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+            DictionarySnapshotRecord<byte[]> shared = get(key, dictionary);
+            if (shared != null) {
+                return shared;
+            }
+        }
+        log.debug("Shared snapshot did not appear, loading from PostgreSQL tenant={} dict={} version={}",
+                tenantId, dictCode, version);
+        return null;
+    }
+
+    private DictionarySnapshotRecord<byte[]> get(String key, RefDataProperties.Dictionary dictionary) {
+        try {
+            byte[] encoded = redisTemplate.execute((RedisCallback<byte[]>) connection ->
+                    connection.stringCommands().get(bytes(key)));
+            return encoded == null ? null : decode(encoded, dictionary);
+        } catch (DataAccessException | UncheckedIOException e) {
+            log.warn("Unable to read shared snapshot {}", key, e);
+            return null;
+        }
+    }
+
+    private void put(List<String> keys, DictionarySnapshotRecord<byte[]> snapshot) {
+        try {
+            byte[] encoded = encode(snapshot);
+            if (encoded == null) {
+                log.debug("Snapshot {} exceeds snapshot-max-bytes, not shared", keys);
+                return;
+            }
+            for (String key : keys) {
+                redisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands().set(
+                        bytes(key),
+                        encoded,
+                        Expiration.seconds(settings.getSnapshotTtlSeconds()),
+                        RedisStringCommands.SetOption.UPSERT));
+            }
+        } catch (DataAccessException | UncheckedIOException e) {
+            log.warn("Unable to publish shared snapshot {}", keys, e);
+        }
+    }
+
+    /**
+     * Fails open: with Redis unreachable every pod becomes a lock winner and reads PostgreSQL itself. The warning is
+     * logged at most once per {@link #LOCK_FAILURE_LOG_INTERVAL_NANOS}, later failures go to debug.
+     */
+    private boolean tryLock(String lockKey, String token) {
+        try {
+            return Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(
+                    lockKey, token, settings.getSnapshotLockTtlMs(), TimeUnit.MILLISECONDS));
+        } catch (DataAccessException e) {
+            long now = System.nanoTime();
+            long loggedAt = lockFailureLoggedAtNanos.get();
+            if (now - loggedAt >= LOCK_FAILURE_LOG_INTERVAL_NANOS
+                    && lockFailureLoggedAtNanos.compareAndSet(loggedAt, now)) {
+                log.warn("Unable to take shared snapshot lock {}, loading from PostgreSQL", lockKey, e);
+            } else {
+                log.debug("Unable to take shared snapshot lock {}, loading from PostgreSQL", lockKey, e);
+            }
+            return true;
+        }
+    }
+
+    private void unlock(String lockKey, String token) {
+        try {
+            redisTemplate.execute(RELEASE_LOCK, List.of(lockKey), token);
+        } catch (DataAccessException e) {
+            log.debug("Unable to release shared snapshot lock {}, it expires on its own", lockKey, e);
+        }
+    }
+
+    /**
+     * @return {@code null} as soon as the compressed snapshot grows past {@code snapshotMaxBytes}
+     */
+    private byte[] encode(DictionarySnapshotRecord<byte[]> snapshot) {
+        BoundedBuffer buffer = new BoundedBuffer(settings.getSnapshotMaxBytes());
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buffer, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeLong(snapshot.version());
+            out.writeInt(snapshot.items().size());
+            for (Map.Entry<String, byte[]> item : snapshot.items().entrySet()) {
+                byte[] key = bytes(item.getKey());
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeInt(item.getValue().length);
+                out.write(item.getValue());
+            }
+        } catch (SnapshotTooLargeException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to encode shared snapshot", e);
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Decodes straight into the map layout of the dictionary's snapshot, see {@link ItemsBuilder#forDictionary}.
+     */
+    private DictionarySnapshotRecord<byte[]> decode(byte[] encoded, RefDataProperties.Dictionary dictionary) {
+        try (DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(encoded), 1 << 16))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a shared snapshot entry");
+            }
+            long version = in.readLong();
+            int size = in.readInt();
+            ItemsBuilder<byte[]> items = ItemsBuilder.forDictionary(dictionary, true);
+            for (int i = 0; i < size; i++) {
+                byte[] key = new byte[in.readInt()];
+                in.readFully(key);
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                items.put(new String(key, StandardCharsets.UTF_8), payload);
+            }
+            return new DictionarySnapshotRecord<>(version, items.build());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to decode shared snapshot", e);
+        }
+    }
+
+    private String key(String tenantId, String dictCode, long version) {
+        return settings.getSnapshotKeyPrefix() + tenantId + ":" + dictCode.toUpperCase(Locale.ROOT) + ":" + version;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static final class BoundedBuffer extends ByteArrayOutputStream {
+
+        private final int maxBytes;
+
+        private BoundedBuffer(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public void write(int b) {
+            ensureRoom(1);
+            super.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureRoom(len);
+            super.write(b, off, len);
+        }
+
+        private void ensureRoom(int len) {
+            if ((long) count + len > maxBytes) {
+                throw new SnapshotTooLargeException();
+            }
+        }
+    }
+
+    private static final class SnapshotTooLargeException extends UncheckedIOException {
+
+        private SnapshotTooLargeException() {
+            super(new IOException("Shared snapshot exceeds snapshot-max-bytes"));
+        }
+    }
+}
@@ -16,6 +16,22 @@ public class RefDataTimeouts {
         return properties.getQuery().getWaitForReloadMs();
     }
 
+    public int coalesceWindowMs() {
+        return properties.getCache().getCoalesceWindowMs();
+    }
+
+    public int reloadJitterMaxMs() {
+        return properties.getCache().getReloadJitterMaxMs();
+    }
+
+    public int emptyRecheckMs() {
+        return properties.getCache().getEmptyRecheckMs();
+    }
+
+    public int pageCursorTtlMs() {
+        return properties.getQuery().getPageCursorTtlMs();
+    }
+
     public int outboxPollIntervalMs() {
         return properties.getOutbox().getPollIntervalMs();
     }
@@ -27,4 +43,8 @@ public class RefDataTimeouts {
     public int redisStreamRecoveryPollMs() {
         return properties.getRedis().getStreamRecoveryPollMs();
     }
+
+    public int shardHeartbeatMs() {
+        return properties.getSharding().getHeartbeatMs();
+    }
 }
@@ -0,0 +1,96 @@
+package com.contdistrapp.refdata.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Debounces reload requests per key: at most one reload is pending for a key, it targets the highest version
+ * requested while it was waiting, and it fires after the coalescing window plus a random per-pod jitter.
+ */
+final class ReloadCoalescer<K> {
+
+    private static final Logger log = LoggerFactory.getLogger(ReloadCoalescer.class);
+
+    private final long windowMs;
+    private final long jitterMaxMs;
+    private final ExecutorService reloadExecutor;
+    private final ObjLongConsumer<K> reload;
+    private final Map<K, PendingReload> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r);
+        t.setName("cache-reload-coalescer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    ReloadCoalescer(long windowMs, long jitterMaxMs, ExecutorService reloadExecutor, ObjLongConsumer<K> reload) {
+        this.windowMs = windowMs;
+        this.jitterMaxMs = jitterMaxMs;
+        this.reloadExecutor = reloadExecutor;
+        this.reload = reload;
+    }
+
+    void submit(K key, long targetVersion) {
+        PendingReload created = new PendingReload(targetVersion);
+        PendingReload existing = pending.merge(key, created, (current, ignored) -> {
+            current.targetVersion = Math.max(current.targetVersion, targetVersion);
+            return current;
+        });
+        if (existing != created) {
+            return;
+        }
+        long delayMs = windowMs + (jitterMaxMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMaxMs + 1) : 0);
+        try {
+            timer.schedule(() -> fire(key), delayMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shuttingDown) {
+            pending.remove(key, created);
+        }
+    }
+
+    /**
+     * Same as {@link #submit}, but fires at once: a reload of the key still waiting for its window is taken over and
+     * fired now, and requests arriving together share one reload.
+     */
+    void submitNow(K key, long targetVersion) {
+        pending.merge(key, new PendingReload(targetVersion), (current, ignored) -> {
+            current.targetVersion = Math.max(current.targetVersion, targetVersion);
+            return current;
+        });
+        fire(key);
+    }
+
+    void shutdown() {
+        timer.shutdownNow();
+        pending.clear();
+    }
+
+    private void fire(K key) {
+        PendingReload fired = pending.remove(key);
+        if (fired == null) {
+            return;
+        }
+        try {
+            reloadExecutor.submit(() -> reload.accept(key, fired.targetVersion));
+        } catch (RejectedExecutionException shuttingDown) {
+            log.debug("Reload executor is shut down, dropping reload key={}", key);
+        }
+    }
+
+    private static final class PendingReload {
+        private volatile long targetVersion;
+
+        private PendingReload(long targetVersion) {
+            this.targetVersion = targetVersion;
+        }
+    }
+}
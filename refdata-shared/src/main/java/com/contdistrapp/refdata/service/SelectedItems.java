@@ -0,0 +1,79 @@
+package com.contdistrapp.refdata.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Requested subset of a dictionary in request order. Values are read through to the source map, so selecting
+ * keys from a raw snapshot does not parse payloads.
+ */
+final class SelectedItems extends AbstractMap<String, JsonNode> {
+
+    private final Map<String, JsonNode> source;
+    private final Set<String> keys;
+
+    SelectedItems(Map<String, JsonNode> source, Iterable<String> requested) {
+        Set<String> present = new LinkedHashSet<>();
+        for (String key : requested) {
+            if (source.containsKey(key)) {
+                present.add(key);
+            }
+        }
+        this.source = source;
+        this.keys = Collections.unmodifiableSet(present);
+    }
+
+    @Override
+    public int size() {
+        return keys.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return keys.contains(key);
+    }
+
+    @Override
+    public JsonNode get(Object key) {
+        return keys.contains(key) ? source.get(key) : null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return keys;
+    }
+
+    @Override
+    public Set<Entry<String, JsonNode>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, JsonNode>> iterator() {
+                Iterator<String> keyIterator = keys.iterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return keyIterator.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, JsonNode> next() {
+                        String key = keyIterator.next();
+                        return new SimpleImmutableEntry<>(key, source.get(key));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return keys.size();
+            }
+        };
+    }
+}
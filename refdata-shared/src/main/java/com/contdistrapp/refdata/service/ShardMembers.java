@@ -0,0 +1,17 @@
+package com.contdistrapp.refdata.service;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Base URLs of the query pods that currently form the tenant shard ring.
+ */
+public interface ShardMembers {
+
+    Set<String> current();
+
+    /**
+     * @param listener called with the new member set whenever it changes
+     */
+    void subscribe(Consumer<Set<String>> listener);
+}
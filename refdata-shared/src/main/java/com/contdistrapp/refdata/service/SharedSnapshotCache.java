@@ -0,0 +1,34 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.persistence.DictionarySnapshotRecord;
+
+import java.util.function.Supplier;
+
+/**
+ * Second-level snapshot cache shared by all query pods, so a changed dictionary is read from PostgreSQL once per
+ * version instead of once per pod.
+ */
+public interface SharedSnapshotCache {
+
+    boolean enabled();
+
+    /**
+     * @param version committed version the caller is about to load
+     * @param loader  reads the committed snapshot from PostgreSQL; used by the pod that wins the load
+     * @return the shared entry or the rows this pod loaded, or {@code null} while another pod is loading the
+     * version; the caller then releases its locks and calls {@link #await}
+     */
+    DictionarySnapshotRecord<byte[]> load(
+            String tenantId,
+            String dictCode,
+            long version,
+            Supplier<DictionarySnapshotRecord<byte[]>> loader);
+
+    /**
+     * Blocks up to {@code snapshotWaitMs} for the entry another pod is loading. Must be called without the
+     * bucket reload lock or a reload permit.
+     *
+     * @return {@code null} when the entry did not appear in time
+     */
+    DictionarySnapshotRecord<byte[]> await(String tenantId, String dictCode, long version);
+}
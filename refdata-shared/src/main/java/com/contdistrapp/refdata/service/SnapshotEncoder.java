@@ -0,0 +1,319 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.api.DictionaryItemsResponse;
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes query responses to JSON bytes. Bodies of pod-cache reads are memoized on their {@link CacheSnapshot},
+ * so each version is serialized at most once; PostgreSQL fallback reads are encoded on every call. {@code /all}
+ * bodies larger than {@code memoizeAllMaxBytes} are encoded per request instead of pinning a second copy of the
+ * dictionary on the heap.
+ */
+@Component
+@ConditionalOnRefdataRole({"query-api"})
+public class SnapshotEncoder {
+
+    private static final byte[] ITEM_PREFIX = "{\"key\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ITEM_PAYLOAD = ",\"payload\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ITEMS_PREFIX = "{\"items\":{".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] ITEMS_SUFFIX = "}}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_PREFIX = "{\"version\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_ITEMS = ",\"items\":{".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] PAGE_NEXT_CURSOR = "},\"nextCursor\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] RANGE_NEXT_FROM = "},\"nextFrom\":".getBytes(StandardCharsets.UTF_8);
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+
+    private final ObjectMapper objectMapper;
+    private final RefDataProperties properties;
+
+    public SnapshotEncoder(ObjectMapper objectMapper, RefDataProperties properties) {
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+    }
+
+    public boolean gzipEnabled() {
+        return properties.getQuery().isGzipPrecompressed();
+    }
+
+    public byte[] all(QueryReadResult result) {
+        CacheSnapshot snapshot = result.snapshot();
+        if (snapshot == null) {
+            return encodeAll(result.items());
+        }
+        PayloadStore payloads = snapshot.payloads();
+        if (payloads != null && !payloads.onHeap()) {
+            return encodeAllRaw(payloads);
+        }
+        byte[] encoded = snapshot.encodedAll();
+        if (encoded != null) {
+            return encoded;
+        }
+        encoded = payloads != null ? encodeAllRaw(payloads) : encodeAll(snapshot.items());
+        if (!memoizable(encoded)) {
+            return encoded;
+        }
+        synchronized (snapshot) {
+            if (snapshot.encodedAll() == null) {
+                snapshot.encodedAll(encoded);
+            }
+            return snapshot.encodedAll();
+        }
+    }
+
+    public byte[] allGzip(QueryReadResult result) {
+        CacheSnapshot snapshot = result.snapshot();
+        if (snapshot == null) {
+            return gzip(encodeAll(result.items()));
+        }
+        if (snapshot.payloads() != null && !snapshot.payloads().onHeap()) {
+            return gzip(all(result));
+        }
+        byte[] encoded = snapshot.encodedAllGzip();
+        if (encoded != null) {
+            return encoded;
+        }
+        encoded = gzip(all(result));
+        if (!memoizable(encoded)) {
+            return encoded;
+        }
+        synchronized (snapshot) {
+            if (snapshot.encodedAllGzip() == null) {
+                snapshot.encodedAllGzip(encoded);
+            }
+            return snapshot.encodedAllGzip();
+        }
+    }
+
+    public byte[] item(QueryReadResult result, String key) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ITEM_PREFIX);
+        out.writeBytes(encodeValue(key));
+        out.writeBytes(ITEM_PAYLOAD);
+        out.writeBytes(payload(result, key));
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    public byte[] items(QueryReadResult result) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ITEMS_PREFIX);
+        boolean first = true;
+        for (String key : result.items().keySet()) {
+            if (!first) {
+                out.write(',');
+            }
+            first = false;
+            out.writeBytes(encodeValue(key));
+            out.write(':');
+            out.writeBytes(payload(result, key));
+        }
+        out.writeBytes(ITEMS_SUFFIX);
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes one {@code {"key":...,"payload":...}} line per item straight from the snapshot, so the body of a large
+     * dictionary is never built in memory.
+     */
+    public void writeNdjson(QueryReadResult result, OutputStream target) throws IOException {
+        OutputStream out = new BufferedOutputStream(target, STREAM_BUFFER_BYTES);
+        try {
+            forEachPayload(result, (key, payload) -> {
+                try {
+                    out.write(ITEM_PREFIX);
+                    out.write(encodeValue(key));
+                    out.write(ITEM_PAYLOAD);
+                    write(out, payload);
+                    out.write('}');
+                    out.write('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        out.flush();
+    }
+
+    /**
+     * {@code {"version":...,"items":{...},"nextCursor":...}} for {@code keys[from, to)} of the pinned snapshot.
+     * Payloads are not memoized, so paging through a whole dictionary does not keep a second encoded copy.
+     */
+    public byte[] page(QueryReadResult result, String[] keys, int from, int to, String nextCursor) {
+        return slice(result, keys, from, to, PAGE_NEXT_CURSOR, nextCursor);
+    }
+
+    /**
+     * {@code {"version":...,"items":{...},"nextFrom":...}} of a key range read.
+     */
+    public byte[] range(KeyRange range) {
+        return slice(range.result(), range.keys(), range.start(), range.end(), RANGE_NEXT_FROM, range.nextFrom());
+    }
+
+    private byte[] slice(QueryReadResult result, String[] keys, int from, int to, byte[] nextField, String next) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(PAGE_PREFIX);
+        out.writeBytes(Long.toString(result.version()).getBytes(StandardCharsets.US_ASCII));
+        out.writeBytes(PAGE_ITEMS);
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                out.write(',');
+            }
+            out.writeBytes(encodeValue(keys[i]));
+            out.write(':');
+            out.writeBytes(unmemoizedPayload(result, keys[i]));
+        }
+        out.writeBytes(nextField);
+        out.writeBytes(encodeValue(next));
+        out.write('}');
+        return out.toByteArray();
+    }
+
+    /**
+     * Strong entity tag of one item, derived from the hash of its encoded payload, so it stays stable across
+     * versions that do not change the item.
+     */
+    public String itemEtag(QueryReadResult result, String key) {
+        if (result.snapshot() != null && result.snapshot().payloads() instanceof OffHeapPayloadStore offHeap) {
+            // Digested when the store was built, so a 304 does not touch the payload.
+            return offHeap.etag(key);
+        }
+        return encodedPayload(result, key).etag();
+    }
+
+    private byte[] payload(QueryReadResult result, String key) {
+        PayloadStore payloads = result.snapshot() == null ? null : result.snapshot().payloads();
+        if (payloads != null && !payloads.onHeap()) {
+            // Memoizing would copy the off-heap region back onto the heap.
+            return bytes(payloads.payload(key));
+        }
+        return encodedPayload(result, key).json();
+    }
+
+    private CacheSnapshot.EncodedPayload encodedPayload(QueryReadResult result, String key) {
+        CacheSnapshot snapshot = result.snapshot();
+        if (snapshot == null) {
+            return encodePayload(result.items().get(key));
+        }
+        PayloadStore payloads = snapshot.payloads();
+        if (payloads != null) {
+            return snapshot.encodedPayload(key, k -> encodedPayload(bytes(payloads.payload(k))));
+        }
+        return snapshot.encodedPayload(key, k -> encodePayload(snapshot.items().get(k)));
+    }
+
+    private byte[] unmemoizedPayload(QueryReadResult result, String key) {
+        PayloadStore payloads = result.snapshot() == null ? null : result.snapshot().payloads();
+        if (payloads != null) {
+            return bytes(payloads.payload(key));
+        }
+        return encodeValue(result.items().get(key));
+    }
+
+    private void forEachPayload(QueryReadResult result, BiConsumer<String, ByteBuffer> action) {
+        PayloadStore payloads = result.snapshot() == null ? null : result.snapshot().payloads();
+        if (payloads != null) {
+            payloads.forEach(action);
+            return;
+        }
+        result.items().forEach((key, value) -> action.accept(key, ByteBuffer.wrap(encodeValue(value))));
+    }
+
+    private CacheSnapshot.EncodedPayload encodePayload(JsonNode value) {
+        return encodedPayload(encodeValue(value));
+    }
+
+    private CacheSnapshot.EncodedPayload encodedPayload(byte[] json) {
+        byte[] digest = CacheSnapshot.EncodedPayload.sha256().digest(json);
+        return new CacheSnapshot.EncodedPayload(json, CacheSnapshot.EncodedPayload.etag(digest, 0));
+    }
+
+    private byte[] encodeAll(Map<String, JsonNode> items) {
+        return encodeValue(new DictionaryItemsResponse(items));
+    }
+
+    private byte[] encodeAllRaw(PayloadStore payloads) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(ITEMS_PREFIX);
+        boolean[] first = {true};
+        payloads.forEach((key, payload) -> {
+            if (!first[0]) {
+                out.write(',');
+            }
+            first[0] = false;
+            out.writeBytes(encodeValue(key));
+            out.write(':');
+            write(out, payload);
+        });
+        out.writeBytes(ITEMS_SUFFIX);
+        return out.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream out, ByteBuffer payload) {
+        if (payload.hasArray()) {
+            out.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } else {
+            out.writeBytes(bytes(payload));
+        }
+    }
+
+    private static void write(OutputStream out, ByteBuffer payload) throws IOException {
+        if (payload.hasArray()) {
+            out.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+        } else {
+            out.write(bytes(payload));
+        }
+    }
+
+    /**
+     * Returns the backing array itself when the buffer wraps a whole heap array, so heap payloads are not copied.
+     */
+    private static byte[] bytes(ByteBuffer payload) {
+        if (payload.hasArray() && payload.arrayOffset() == 0 && payload.position() == 0
+                && payload.remaining() == payload.array().length) {
+            return payload.array();
+        }
+        byte[] copy = new byte[payload.remaining()];
+        payload.duplicate().get(copy);
+        return copy;
+    }
+
+    private byte[] encodeValue(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode query response", e);
+        }
+    }
+
+    private boolean memoizable(byte[] encoded) {
+        return encoded.length <= properties.getQuery().getMemoizeAllMaxBytes();
+    }
+
+    private byte[] gzip(byte[] plain) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, plain.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(plain);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to gzip query response", e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,339 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Keeps the latest snapshot of every resident dictionary in a local file (emptyDir or PVC), so a restarted pod maps
+ * it instead of reloading the dictionary from PostgreSQL and only catches up from the persisted version.
+ *
+ * <p>File layout, big-endian: header {@code [int magic][int format][long version][int entries]}, then segments of
+ * whole {@code [int keyLength][int payloadLength][key][payload]} records as {@link OffHeapPayloadStore#indexed}
+ * reads them, then {@code [long segmentLength]... [int segments][long crc32c]}, the checksum covering all bytes
+ * before it. Files are replaced atomically, so a crash mid-write leaves the previous file.
+ */
+@Component
+@ConditionalOnRefdataRole({"query-api"})
+public class SnapshotFileStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SnapshotFileStore.class);
+
+    private static final int MAGIC = 0x52445331;
+    private static final int FORMAT = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int TRAILER_BYTES = 12;
+    private static final String SUFFIX = ".snapshot";
+    private static final long SHUTDOWN_WAIT_SECONDS = 30;
+
+    private final RefDataProperties.Persistence settings;
+    private final ObjectMapper objectMapper;
+    private final Path directory;
+    private final ScheduledThreadPoolExecutor writer;
+    private final Map<Path, CacheSnapshot> pendingWrites = new ConcurrentHashMap<>();
+
+    public SnapshotFileStore(RefDataProperties properties, ObjectMapper objectMapper) {
+        this.settings = properties.getCache().getPersistence();
+        this.objectMapper = objectMapper;
+        this.directory = settings.isEnabled() ? Path.of(settings.getDirectory()) : null;
+        this.writer = settings.isEnabled()
+                ? new ScheduledThreadPoolExecutor(1, runnable -> {
+                    Thread thread = new Thread(runnable, "refdata-snapshot-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+        if (writer != null) {
+            // Delayed writes are flushed by shutdown() right away instead of waiting out their delay.
+            writer.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        }
+    }
+
+    boolean enabled() {
+        return directory != null;
+    }
+
+    /**
+     * Schedules a write after {@code writeDelayMs}; versions published meanwhile replace the pending one, so a
+     * busy dictionary is written at most once per delay.
+     */
+    void persist(String tenantId, String dictCode, CacheSnapshot snapshot) {
+        if (!enabled() || snapshot.version() == 0) {
+            return;
+        }
+        Path file = file(tenantId, dictCode);
+        if (pendingWrites.put(file, snapshot) != null) {
+            return;
+        }
+        try {
+            writer.schedule(() -> write(file), settings.getWriteDelayMs(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException shuttingDown) {
+            pendingWrites.remove(file);
+        }
+    }
+
+    /**
+     * Maps the persisted snapshot; a missing, foreign or corrupt file yields empty and the caller loads from
+     * PostgreSQL. Only a file that fails the format or checksum checks is deleted; an I/O error keeps it for the
+     * next attempt.
+     */
+    Optional<PersistedSnapshot> read(String tenantId, String dictCode) {
+        if (!enabled()) {
+            return Optional.empty();
+        }
+        Path file = file(tenantId, dictCode);
+        if (!Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(map(file));
+        } catch (CorruptSnapshotFileException e) {
+            log.warn("Discarding corrupt snapshot file {}: {}", file, e.getMessage());
+            deleteQuietly(file);
+            return Optional.empty();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to read snapshot file {}", file, e);
+            return Optional.empty();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        // Lets a write in progress finish; interrupting it would drop its version and race on the .tmp file.
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Snapshot writer did not finish within {}s, skipping pending writes", SHUTDOWN_WAIT_SECONDS);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // Flush what is pending so the next start restores the latest versions.
+        pendingWrites.keySet().forEach(this::write);
+    }
+
+    private PersistedSnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileBytes = channel.size();
+            if (fileBytes < HEADER_BYTES + TRAILER_BYTES) {
+                throw new CorruptSnapshotFileException("Snapshot file is truncated");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, fileBytes - TRAILER_BYTES, TRAILER_BYTES);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != FORMAT) {
+                throw new CorruptSnapshotFileException("Not a snapshot file of format " + FORMAT);
+            }
+            long version = header.getLong(8);
+            int entries = header.getInt(16);
+            int segmentCount = trailer.getInt(0);
+            long expectedCrc = trailer.getLong(4);
+
+            long tableOffset = fileBytes - TRAILER_BYTES - 8L * segmentCount;
+            if (segmentCount < 0 || tableOffset < HEADER_BYTES) {
+                throw new CorruptSnapshotFileException("Snapshot file segment table is corrupt");
+            }
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, tableOffset, 8L * segmentCount);
+
+            CRC32C crc = new CRC32C();
+            crc.update(header.duplicate());
+            List<ByteBuffer> segments = new ArrayList<>(segmentCount);
+            long offset = HEADER_BYTES;
+            for (int i = 0; i < segmentCount; i++) {
+                long segmentBytes = table.getLong(i * 8);
+                if (segmentBytes < 0 || offset + segmentBytes > tableOffset) {
+                    throw new CorruptSnapshotFileException("Snapshot file segment table is corrupt");
+                }
+                ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, offset, segmentBytes);
+                crc.update(segment.duplicate());
+                segments.add(segment);
+                offset += segmentBytes;
+            }
+            if (offset != tableOffset) {
+                throw new CorruptSnapshotFileException("Snapshot file segment table is corrupt");
+            }
+            crc.update(table.duplicate());
+            crc.update(trailer.duplicate().limit(4));
+            if (crc.getValue() != expectedCrc) {
+                throw new CorruptSnapshotFileException("Snapshot file checksum mismatch");
+            }
+            // Mappings stay valid after the channel is closed and after the file is replaced.
+            try {
+                return new PersistedSnapshot(version, OffHeapPayloadStore.indexed(segments, entries));
+            } catch (RuntimeException e) {
+                throw new CorruptSnapshotFileException("Snapshot file records do not match its header: "
+                        + e.getMessage());
+            }
+        }
+    }
+
+    private void write(Path file) {
+        CacheSnapshot snapshot = pendingWrites.remove(file);
+        if (snapshot == null) {
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                writeSnapshot(out, snapshot);
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Persisted snapshot {} version={}", file, snapshot.version());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unable to persist snapshot {} version={}", file, snapshot.version(), e);
+            deleteQuietly(temp);
+        }
+    }
+
+    private void writeSnapshot(OutputStream target, CacheSnapshot snapshot) throws IOException {
+        CRC32C crc = new CRC32C();
+        DataOutputStream out = new DataOutputStream(
+                new CheckedOutputStream(new BufferedOutputStream(target, 1 << 16), crc));
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT);
+        out.writeLong(snapshot.version());
+        out.writeInt(snapshot.items().size());
+
+        SegmentWriter segments = new SegmentWriter(out);
+        PayloadStore payloads = snapshot.payloads();
+        if (payloads != null) {
+            payloads.forEach(segments::record);
+        } else {
+            snapshot.items().forEach((key, value) -> segments.record(key, ByteBuffer.wrap(encode(value))));
+        }
+        segments.close();
+
+        for (long segmentBytes : segments.lengths) {
+            out.writeLong(segmentBytes);
+        }
+        out.writeInt(segments.lengths.size());
+        out.flush();
+        new DataOutputStream(target).writeLong(crc.getValue());
+    }
+
+    private byte[] encode(Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to encode snapshot item", e);
+        }
+    }
+
+    private Path file(String tenantId, String dictCode) {
+        return directory
+                .resolve(directoryName(tenantId))
+                .resolve(dictCode.toUpperCase(Locale.ROOT) + SUFFIX);
+    }
+
+    /**
+     * URL-encoded tenant with dots escaped as well, so no tenant id resolves to {@code .}, {@code ..} or a hidden
+     * directory.
+     */
+    private static String directoryName(String tenantId) {
+        return URLEncoder.encode(tenantId, StandardCharsets.UTF_8).replace(".", "%2E");
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            log.debug("Unable to delete {}", file, e);
+        }
+    }
+
+    /**
+     * The file fails the format or checksum checks and can only be replaced.
+     */
+    private static final class CorruptSnapshotFileException extends IOException {
+
+        private CorruptSnapshotFileException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param payloads records indexed in place over the mapped file
+     */
+    record PersistedSnapshot(long version, PayloadStore payloads) {
+    }
+
+    /**
+     * Starts a new segment before a record would cross {@link OffHeapPayloadStore#SEGMENT_BYTES}, so every segment
+     * can be mapped on its own.
+     */
+    private static final class SegmentWriter {
+
+        private final DataOutputStream out;
+        private final List<Long> lengths = new ArrayList<>();
+        private long current;
+
+        private SegmentWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void record(String key, ByteBuffer payload) {
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            long recordBytes = 8L + keyBytes.length + payload.remaining();
+            if (current > 0 && current + recordBytes > OffHeapPayloadStore.SEGMENT_BYTES) {
+                close();
+            }
+            try {
+                out.writeInt(keyBytes.length);
+                out.writeInt(payload.remaining());
+                out.write(keyBytes);
+                if (payload.hasArray()) {
+                    out.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+                } else {
+                    byte[] copy = new byte[payload.remaining()];
+                    payload.duplicate().get(copy);
+                    out.write(copy);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            current += recordBytes;
+        }
+
+        private void close() {
+            if (current > 0) {
+                lengths.add(current);
+                current = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.domain.KeyType;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Item keys of one snapshot version in ascending order, for prefix and range reads of dictionaries with
+ * {@code sorted-keys: true}: lexicographic for {@code STRING} keys, numeric for {@code LONG} keys. The key strings
+ * are shared with the snapshot, the index itself is one reference array.
+ */
+final class SortedKeys {
+
+    private static final long ARRAY_BYTES = 16;
+    private static final long REFERENCE_BYTES = 4;
+
+    private final String[] keys;
+    private final Comparator<String> order;
+
+    private SortedKeys(String[] keys, Comparator<String> order) {
+        this.keys = keys;
+        this.order = order;
+    }
+
+    static SortedKeys build(Collection<String> keys, KeyType keyType) {
+        if (keyType == KeyType.LONG) {
+            // Parses every key once instead of on every comparison of the sort.
+            long[] numbers = keys.stream().mapToLong(Long::parseLong).toArray();
+            Arrays.sort(numbers);
+            String[] sorted = new String[numbers.length];
+            for (int i = 0; i < numbers.length; i++) {
+                sorted[i] = Long.toString(numbers[i]);
+            }
+            return new SortedKeys(sorted, order(keyType));
+        }
+        String[] sorted = keys.toArray(new String[0]);
+        Arrays.sort(sorted);
+        return new SortedKeys(sorted, order(keyType));
+    }
+
+    /**
+     * Keys of the version built by changing {@code changed} keys, merged in one pass over this array; only the
+     * changed keys are sorted.
+     *
+     * @param next items of the new version
+     */
+    SortedKeys patched(Set<String> changed, Map<String, ?> next) {
+        List<String> added = changed.stream().filter(next::containsKey).sorted(order).toList();
+        String[] merged = new String[keys.length + added.size()];
+        int size = 0;
+        int pending = 0;
+        for (String key : keys) {
+            if (changed.contains(key)) {
+                continue;
+            }
+            while (pending < added.size() && order.compare(added.get(pending), key) < 0) {
+                merged[size++] = added.get(pending++);
+            }
+            merged[size++] = key;
+        }
+        while (pending < added.size()) {
+            merged[size++] = added.get(pending++);
+        }
+        return new SortedKeys(size == merged.length ? merged : Arrays.copyOf(merged, size), order);
+    }
+
+    /**
+     * Keys starting with {@code prefix} and within {@code [from, to)}, up to {@code limit}; every bound is optional.
+     */
+    KeyRange range(QueryReadResult result, String prefix, String from, String to, int limit) {
+        int start = 0;
+        if (prefix != null) {
+            start = lowerBound(prefix);
+        }
+        if (from != null) {
+            start = Math.max(start, lowerBound(from));
+        }
+        int end = start;
+        while (end < keys.length && end - start < limit && inRange(keys[end], prefix, to)) {
+            end++;
+        }
+        String nextFrom = end < keys.length && inRange(keys[end], prefix, to) ? keys[end] : null;
+        return new KeyRange(result, keys, start, end, nextFrom);
+    }
+
+    long estimatedBytes() {
+        return ARRAY_BYTES + keys.length * REFERENCE_BYTES;
+    }
+
+    private boolean inRange(String key, String prefix, String to) {
+        return (prefix == null || key.startsWith(prefix)) && (to == null || order.compare(key, to) < 0);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = keys.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (order.compare(keys[middle], key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static Comparator<String> order(KeyType keyType) {
+        return keyType == KeyType.LONG
+                ? Comparator.comparingLong(Long::parseLong)
+                : Comparator.naturalOrder();
+    }
+}
@@ -0,0 +1,31 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(prefix = "refdata.sharding", name = "membership", havingValue = "STATIC", matchIfMissing = true)
+@ConditionalOnRefdataRole({"query-api"})
+public class StaticShardMembers implements ShardMembers {
+
+    private final Set<String> members;
+
+    public StaticShardMembers(RefDataProperties properties) {
+        this.members = Set.copyOf(properties.getSharding().getMembers());
+    }
+
+    @Override
+    public Set<String> current() {
+        return members;
+    }
+
+    @Override
+    public void subscribe(Consumer<Set<String>> listener) {
+        // The configured list never changes at runtime.
+    }
+}
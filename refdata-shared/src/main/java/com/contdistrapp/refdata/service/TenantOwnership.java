@@ -0,0 +1,103 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.config.role.ConditionalOnRefdataRole;
+import com.contdistrapp.refdata.domain.ShardRouting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Decides which query pod caches a tenant when {@code refdata.sharding.enabled} is set: tenants are placed on a
+ * {@link ConsistentHashRing} of the pods reported by {@link ShardMembers}, this pod always being one of them. With
+ * sharding disabled every tenant is owned locally.
+ */
+@Component
+@ConditionalOnRefdataRole({"query-api"})
+public class TenantOwnership {
+
+    private static final Logger log = LoggerFactory.getLogger(TenantOwnership.class);
+
+    private final boolean enabled;
+    private final String selfUrl;
+    private final int virtualNodes;
+    private final ShardRouting routing;
+    private final List<Runnable> rebalanceListeners = new CopyOnWriteArrayList<>();
+
+    private volatile ConsistentHashRing ring;
+
+    public TenantOwnership(RefDataProperties properties, ShardMembers members) {
+        RefDataProperties.Sharding settings = properties.getSharding();
+        if (settings.isEnabled() && settings.getSelfUrl().isBlank()) {
+            throw new IllegalStateException("refdata.sharding.self-url is required when sharding is enabled");
+        }
+        this.enabled = settings.isEnabled();
+        this.selfUrl = normalize(settings.getSelfUrl());
+        this.virtualNodes = settings.getVirtualNodes();
+        this.routing = settings.getRouting();
+        this.ring = ring(members.current());
+        members.subscribe(this::rebalance);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    public ShardRouting routing() {
+        return routing;
+    }
+
+    public String selfUrl() {
+        return selfUrl;
+    }
+
+    public boolean owns(String tenantId) {
+        return remoteOwner(tenantId).isEmpty();
+    }
+
+    /**
+     * @return base URL of the pod owning the tenant, empty when it is this pod or sharding is disabled
+     */
+    public Optional<String> remoteOwner(String tenantId) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        String owner = ring.owner(tenantId);
+        return owner == null || owner.equals(selfUrl) ? Optional.empty() : Optional.of(owner);
+    }
+
+    /**
+     * @param listener called after the ring changed, so tenants that moved to another pod can be dropped
+     */
+    void onRebalance(Runnable listener) {
+        rebalanceListeners.add(listener);
+    }
+
+    private void rebalance(Set<String> members) {
+        ConsistentHashRing next = ring(members);
+        if (next.members().equals(ring.members())) {
+            return;
+        }
+        log.info("Tenant shard ring rebuilt members={}", next.members());
+        ring = next;
+        rebalanceListeners.forEach(Runnable::run);
+    }
+
+    private ConsistentHashRing ring(Set<String> members) {
+        Set<String> normalized = new HashSet<>();
+        members.forEach(member -> normalized.add(normalize(member)));
+        normalized.add(selfUrl);
+        return ConsistentHashRing.of(normalized, virtualNodes);
+    }
+
+    static String normalize(String url) {
+        String trimmed = url.trim();
+        return trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed;
+    }
+}
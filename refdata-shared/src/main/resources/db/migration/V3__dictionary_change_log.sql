@@ -0,0 +1,7 @@
+create table if not exists dictionary_change (
+    tenant_id varchar(128) not null,
+    dict_code varchar(128) not null,
+    version bigint not null,
+    item_key varchar(512) not null,
+    primary key (tenant_id, dict_code, version, item_key)
+);
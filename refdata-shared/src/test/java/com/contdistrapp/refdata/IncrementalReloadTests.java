@@ -0,0 +1,165 @@
+package com.contdistrapp.refdata;
+
+import com.contdistrapp.refdata.persistence.DictionaryProvider;
+import com.contdistrapp.refdata.persistence.PlatformRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * {@code INCREMENTAL} dictionaries of the test profile: {@code CITY} keeps a {@code TREE} snapshot, {@code CURRENCY}
+ * a {@code RAW} one, both over the persistent trie.
+ */
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class IncrementalReloadTests {
+
+    private static final String TENANT = "tenant-incremental";
+    private static final String RACE_TENANT = "tenant-incremental-race";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @SpyBean
+    private DictionaryProvider dictionaryProvider;
+
+    @SpyBean
+    private PlatformRepository platformRepository;
+
+    @Test
+    void at33_treeSnapshotIsPatchedFromTheChangeLog() throws Exception {
+        commitAndPatch("CITY");
+
+        verify(dictionaryProvider).loadChanges(eq(TENANT), eq("CITY"), anyLong());
+        verify(dictionaryProvider, never()).loadCommitted(TENANT, "CITY");
+    }
+
+    @Test
+    void at34_rawSnapshotIsPatchedFromTheChangeLog() throws Exception {
+        commitAndPatch("CURRENCY");
+
+        verify(dictionaryProvider).loadChangesRaw(eq(TENANT), eq("CURRENCY"), anyLong());
+        verify(dictionaryProvider, never()).loadCommittedRaw(TENANT, "CURRENCY");
+    }
+
+    @Test
+    void at35_commitBetweenPatchReadsStaysOutOfThePatchedVersion() throws Exception {
+        long loadedVersion = commit(RACE_TENANT, "CITY", """
+                [{"key":"A","op":"UPSERT","payload":{"name":"a"}},
+                 {"key":"B","op":"UPSERT","payload":{"name":"b"}}]
+                """);
+        assertThat(readAll(RACE_TENANT, "CITY", loadedVersion).size()).isEqualTo(2);
+        // The next version commits after the patch has read its version and before it fetches the changed rows.
+        AtomicLong racingVersion = new AtomicLong();
+        doAnswer(invocation -> {
+            if (racingVersion.get() == 0) {
+                CompletableFuture.runAsync(() -> racingVersion.set(commitUnchecked(RACE_TENANT, "CITY", """
+                        [{"key":"B","op":"UPSERT","payload":{"name":"b3"}}]
+                        """))).join();
+            }
+            return invocation.callRealMethod();
+        }).when(platformRepository).findDictionaryChanges(eq(RACE_TENANT), eq("CITY"), anyLong(), anyLong());
+        long patchedVersion = commit(RACE_TENANT, "CITY", """
+                [{"key":"B","op":"UPSERT","payload":{"name":"b2"}}]
+                """);
+
+        MvcResult read = performRead(get("/v1/tenants/{tenantId}/dictionaries/{dictCode}/all", RACE_TENANT, "CITY")
+                .header("X-Exact-Version", patchedVersion));
+        assertThat(racingVersion.get()).isEqualTo(patchedVersion + 1);
+        assertThat(read.getResponse().getStatus()).isEqualTo(200);
+        JsonNode items = objectMapper.readTree(read.getResponse().getContentAsString()).path("items");
+        assertThat(items.path("B").path("name").asText()).isEqualTo("b2");
+
+        assertThat(readAll(RACE_TENANT, "CITY", racingVersion.get()).path("B").path("name").asText())
+                .isEqualTo("b3");
+    }
+
+    /**
+     * Loads {@code A, B, C} in full, then commits an update of {@code B}, a delete of {@code C} and an insert of
+     * {@code D} and reads the version that follows.
+     */
+    private void commitAndPatch(String dictCode) throws Exception {
+        long loadedVersion = commit(TENANT, dictCode, """
+                [{"key":"A","op":"UPSERT","payload":{"name":"a"}},
+                 {"key":"B","op":"UPSERT","payload":{"name":"b"}},
+                 {"key":"C","op":"UPSERT","payload":{"name":"c"}}]
+                """);
+        assertThat(readAll(TENANT, dictCode, loadedVersion).size()).isEqualTo(3);
+        clearInvocations(dictionaryProvider, platformRepository);
+
+        long patchedVersion = commit(TENANT, dictCode, """
+                [{"key":"B","op":"UPSERT","payload":{"name":"b2"}},
+                 {"key":"C","op":"DELETE","payload":null},
+                 {"key":"D","op":"UPSERT","payload":{"name":"d"}}]
+                """);
+        JsonNode items = readAll(TENANT, dictCode, patchedVersion);
+        assertThat(items.size()).isEqualTo(3);
+        assertThat(items.path("A").path("name").asText()).isEqualTo("a");
+        assertThat(items.path("B").path("name").asText()).isEqualTo("b2");
+        assertThat(items.has("C")).isFalse();
+        assertThat(items.path("D").path("name").asText()).isEqualTo("d");
+
+        verify(platformRepository).findDictionaryChanges(TENANT, dictCode, loadedVersion, patchedVersion);
+    }
+
+    private long commitUnchecked(String tenantId, String dictCode, String items) {
+        try {
+            return commit(tenantId, dictCode, items);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private long commit(String tenantId, String dictCode, String items) throws Exception {
+        MvcResult update = mockMvc.perform(post("/v1/tenants/{tenantId}/updates", tenantId)
+                        .param("consistencyMode", "WAIT_COMMIT")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"dictCode\":\"" + dictCode + "\",\"eventType\":\"DELTA\",\"items\":" + items + "}"))
+                .andExpect(status().isOk())
+                .andReturn();
+        return objectMapper.readTree(update.getResponse().getContentAsString()).path("committedVersion").asLong();
+    }
+
+    private JsonNode readAll(String tenantId, String dictCode, long minVersion) throws Exception {
+        MvcResult read = performRead(get("/v1/tenants/{tenantId}/dictionaries/{dictCode}/all", tenantId, dictCode)
+                .header("X-Min-Version", minVersion));
+        assertThat(read.getResponse().getStatus()).isEqualTo(200);
+        return objectMapper.readTree(read.getResponse().getContentAsString()).path("items");
+    }
+
+    private MvcResult performRead(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result;
+    }
+}
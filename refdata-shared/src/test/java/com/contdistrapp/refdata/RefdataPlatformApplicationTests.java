@@ -7,15 +7,20 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@ActiveProfiles("test")
 @SpringBootTest
 @AutoConfigureMockMvc
 class RefdataPlatformApplicationTests {
@@ -58,8 +63,11 @@ class RefdataPlatformApplicationTests {
         long committedVersion = json.path("committedVersion").asLong();
         assertThat(committedVersion).isPositive();
 
-        mockMvc.perform(get("/v1/tenants/tenant-a/dictionaries/COUNTRY/items/DE")
+        MvcResult read = mockMvc.perform(get("/v1/tenants/tenant-a/dictionaries/COUNTRY/items/DE")
                         .header("X-Min-Version", committedVersion))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(read))
                 .andExpect(status().isOk())
                 .andExpect(header().exists("X-Dict-Version"))
                 .andExpect(header().exists("X-Data-Source"));
@@ -67,8 +75,10 @@ class RefdataPlatformApplicationTests {
 
     @Test
     void at04_versionBarrierNotCommitted() throws Exception {
-        mockMvc.perform(get("/v1/tenants/tenant-a/dictionaries/COUNTRY/all")
+        MvcResult read = mockMvc.perform(get("/v1/tenants/tenant-a/dictionaries/COUNTRY/all")
                         .header("X-Min-Version", 9999L))
+                .andReturn();
+        mockMvc.perform(asyncDispatch(read))
                 .andExpect(status().isConflict());
     }
 
@@ -112,6 +122,90 @@ class RefdataPlatformApplicationTests {
         throw new IllegalStateException("Snapshot full-replace not observed in cache");
     }
 
+    @Test
+    void at06_incrementalReloadPatchesChangedKeysOnly() throws Exception {
+        String firstEvent = submitUpdate("tenant-c", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [
+                    {"key":"RU","op":"UPSERT","payload":{"name":"Russia"}},
+                    {"key":"US","op":"UPSERT","payload":{"name":"USA"}}
+                  ]
+                }
+                """);
+        long firstVersion = waitCommitted("tenant-c", firstEvent);
+        assertThat(readAllItems("tenant-c", "COUNTRY", firstVersion).size()).isEqualTo(2);
+
+        String secondEvent = submitUpdate("tenant-c", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [
+                    {"key":"US","op":"DELETE"},
+                    {"key":"FR","op":"UPSERT","payload":{"name":"France"}}
+                  ]
+                }
+                """);
+        long secondVersion = waitCommitted("tenant-c", secondEvent);
+
+        JsonNode items = readAllItems("tenant-c", "COUNTRY", secondVersion);
+        assertThat(items.has("RU")).isTrue();
+        assertThat(items.has("US")).isFalse();
+        assertThat(items.path("FR").path("name").asText()).isEqualTo("France");
+    }
+
+    @Test
+    void at07_conditionalReadsReturnNotModifiedForUnchangedVersion() throws Exception {
+        String eventId = submitUpdate("tenant-d", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [{"key":"IT","op":"UPSERT","payload":{"name":"Italy"}}]
+                }
+                """);
+        long version = waitCommitted("tenant-d", eventId);
+        readAllItems("tenant-d", "COUNTRY", version);
+
+        MvcResult all = mockMvc.perform(get("/v1/tenants/tenant-d/dictionaries/COUNTRY/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("ETag"))
+                .andReturn();
+        String allEtag = all.getResponse().getHeader("ETag");
+        mockMvc.perform(get("/v1/tenants/tenant-d/dictionaries/COUNTRY/all")
+                        .header("If-None-Match", allEtag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("X-Dict-Version", Long.toString(version)));
+
+        MvcResult item = mockMvc.perform(get("/v1/tenants/tenant-d/dictionaries/COUNTRY/items/IT"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String itemEtag = item.getResponse().getHeader("ETag");
+        assertThat(itemEtag).isNotEqualTo(allEtag);
+        mockMvc.perform(get("/v1/tenants/tenant-d/dictionaries/COUNTRY/items/IT")
+                        .header("If-None-Match", itemEtag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void at08_emptyDictionaryBecomesVisibleAfterFirstCommit() throws Exception {
+        mockMvc.perform(get("/v1/tenants/tenant-e/dictionaries/COUNTRY/all"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Dict-Version", "0"));
+
+        String eventId = submitUpdate("tenant-e", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [{"key":"ES","op":"UPSERT","payload":{"name":"Spain"}}]
+                }
+                """);
+        long version = waitCommitted("tenant-e", eventId);
+
+        assertThat(readAllItems("tenant-e", "COUNTRY", version).path("ES").path("name").asText())
+                .isEqualTo("Spain");
+    }
+
     @Test
     void at10_tenantIsolation() throws Exception {
         mockMvc.perform(get("/v1/tenants/tenant-a/dictionaries/COUNTRY/version")
@@ -119,6 +213,134 @@ class RefdataPlatformApplicationTests {
                 .andExpect(status().isForbidden());
     }
 
+    @Test
+    void at11_pagedReadStaysOnPinnedVersionAndNdjsonStreamsEveryItem() throws Exception {
+        long firstVersion = waitCommitted("tenant-f", submitUpdate("tenant-f", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [
+                    {"key":"AT","op":"UPSERT","payload":{"name":"Austria"}},
+                    {"key":"BE","op":"UPSERT","payload":{"name":"Belgium"}},
+                    {"key":"CH","op":"UPSERT","payload":{"name":"Switzerland"}}
+                  ]
+                }
+                """));
+        MvcResult firstPage = performRead(get("/v1/tenants/tenant-f/dictionaries/COUNTRY/all?limit=2")
+                .header("X-Min-Version", firstVersion));
+        assertThat(firstPage.getResponse().getHeader("X-Dict-Version")).isEqualTo(Long.toString(firstVersion));
+        JsonNode first = objectMapper.readTree(firstPage.getResponse().getContentAsString());
+        assertThat(first.path("items").size()).isEqualTo(2);
+
+        long secondVersion = waitCommitted("tenant-f", submitUpdate("tenant-f", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [{"key":"DK","op":"UPSERT","payload":{"name":"Denmark"}}]
+                }
+                """));
+        assertThat(readAllItems("tenant-f", "COUNTRY", secondVersion).has("DK")).isTrue();
+
+        MvcResult secondPage = performRead(get("/v1/tenants/tenant-f/dictionaries/COUNTRY/all")
+                .param("limit", "2")
+                .param("cursor", first.path("nextCursor").asText()));
+        assertThat(secondPage.getResponse().getHeader("X-Dict-Version")).isEqualTo(Long.toString(firstVersion));
+        JsonNode second = objectMapper.readTree(secondPage.getResponse().getContentAsString());
+        assertThat(second.path("items").size()).isEqualTo(1);
+        assertThat(second.path("nextCursor").isNull()).isTrue();
+        assertThat(second.path("items").has("DK")).isFalse();
+
+        mockMvc.perform(get("/v1/tenants/tenant-f/dictionaries/COUNTRY/all?limit=2&cursor=bogus"))
+                .andExpect(status().isBadRequest());
+
+        MvcResult ndjson = performRead(get("/v1/tenants/tenant-f/dictionaries/COUNTRY/all")
+                .accept(MediaType.APPLICATION_NDJSON));
+        assertThat(ndjson.getResponse().getContentType()).startsWith(MediaType.APPLICATION_NDJSON_VALUE);
+        String[] lines = ndjson.getResponse().getContentAsString().split("\n");
+        assertThat(lines).hasSize(4);
+        assertThat(objectMapper.readTree(lines[0]).has("payload")).isTrue();
+    }
+
+    @Test
+    void at12_exactVersionIsServedFromRetainedSnapshots() throws Exception {
+        long[] versions = new long[4];
+        String[] keys = {"GR", "HU", "IE", "JP"};
+        for (int i = 0; i < keys.length; i++) {
+            versions[i] = waitCommitted("tenant-g", submitUpdate("tenant-g", "WAIT_COMMIT", """
+                    {
+                      "dictCode": "COUNTRY",
+                      "eventType": "DELTA",
+                      "items": [{"key":"%s","op":"UPSERT","payload":{"name":"%s"}}]
+                    }
+                    """.formatted(keys[i], keys[i])));
+            readAllItems("tenant-g", "COUNTRY", versions[i]);
+        }
+
+        MvcResult retained = performRead(get("/v1/tenants/tenant-g/dictionaries/COUNTRY/all")
+                .header("X-Exact-Version", versions[1]));
+        assertThat(retained.getResponse().getHeader("X-Dict-Version")).isEqualTo(Long.toString(versions[1]));
+        JsonNode items = objectMapper.readTree(retained.getResponse().getContentAsString()).path("items");
+        assertThat(items.has("HU")).isTrue();
+        assertThat(items.has("IE")).isFalse();
+
+        MvcResult both = performRead(get("/v1/tenants/tenant-g/dictionaries/COUNTRY/items/IE")
+                .header("X-Min-Version", versions[3])
+                .header("X-Exact-Version", versions[2]));
+        assertThat(both.getResponse().getHeader("X-Dict-Version")).isEqualTo(Long.toString(versions[2]));
+
+        MvcResult paged = performRead(get("/v1/tenants/tenant-g/dictionaries/COUNTRY/all?limit=1")
+                .header("X-Exact-Version", versions[1]));
+        assertThat(paged.getResponse().getHeader("X-Dict-Version")).isEqualTo(Long.toString(versions[1]));
+        String cursor = objectMapper.readTree(paged.getResponse().getContentAsString()).path("nextCursor").asText();
+        MvcResult otherVersion = performRead(get("/v1/tenants/tenant-g/dictionaries/COUNTRY/all?limit=1")
+                .param("cursor", cursor)
+                .header("X-Exact-Version", versions[2]));
+        assertThat(otherVersion.getResponse().getStatus()).isEqualTo(400);
+
+        MvcResult evicted = performRead(get("/v1/tenants/tenant-g/dictionaries/COUNTRY/all")
+                .header("X-Exact-Version", versions[0]));
+        assertThat(evicted.getResponse().getStatus()).isEqualTo(410);
+        assertThat(objectMapper.readTree(evicted.getResponse().getContentAsString()).path("code").asText())
+                .isEqualTo("VERSION_NOT_RETAINED");
+    }
+
+    @Test
+    void at13_whereQueryIsAnsweredFromPatchedIndex() throws Exception {
+        long firstVersion = waitCommitted("tenant-h", submitUpdate("tenant-h", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [
+                    {"key":"DE","op":"UPSERT","payload":{"name":"Germany","region":"EU"}},
+                    {"key":"FR","op":"UPSERT","payload":{"name":"France","region":"EU"}},
+                    {"key":"US","op":"UPSERT","payload":{"name":"USA","region":"NA"}}
+                  ]
+                }
+                """));
+        assertThat(readWhere("tenant-h", "region:EU", "X-Min-Version", firstVersion).size()).isEqualTo(2);
+
+        long secondVersion = waitCommitted("tenant-h", submitUpdate("tenant-h", "WAIT_COMMIT", """
+                {
+                  "dictCode": "COUNTRY",
+                  "eventType": "DELTA",
+                  "items": [
+                    {"key":"FR","op":"DELETE"},
+                    {"key":"US","op":"UPSERT","payload":{"name":"USA","region":"AM"}}
+                  ]
+                }
+                """));
+        JsonNode europe = readWhere("tenant-h", "region:EU", "X-Min-Version", secondVersion);
+        assertThat(europe.size()).isEqualTo(1);
+        assertThat(europe.path("DE").path("name").asText()).isEqualTo("Germany");
+        assertThat(readWhere("tenant-h", "region:NA", "X-Min-Version", secondVersion).size()).isZero();
+        assertThat(readWhere("tenant-h", "region:AM", "X-Min-Version", secondVersion).has("US")).isTrue();
+        assertThat(readWhere("tenant-h", "region:EU", "X-Exact-Version", firstVersion).has("FR")).isTrue();
+
+        MvcResult unknownIndex = performRead(get("/v1/tenants/tenant-h/dictionaries/COUNTRY/items")
+                .param("where", "name:France"));
+        assertThat(unknownIndex.getResponse().getStatus()).isEqualTo(400);
+    }
+
     private String submitUpdate(String tenantId, String consistencyMode, String payload) throws Exception {
         MvcResult response = mockMvc.perform(post("/v1/tenants/{tenantId}/updates", tenantId)
                         .param("consistencyMode", consistencyMode)
@@ -132,7 +354,30 @@ class RefdataPlatformApplicationTests {
         return json.path("eventId").asText();
     }
 
-    private void waitCommitted(String tenantId, String eventId) throws Exception {
+    private JsonNode readAllItems(String tenantId, String dictCode, long minVersion) throws Exception {
+        MvcResult all = performRead(get("/v1/tenants/{tenantId}/dictionaries/{dictCode}/all", tenantId, dictCode)
+                .header("X-Min-Version", minVersion));
+        assertThat(all.getResponse().getStatus()).isEqualTo(200);
+        return objectMapper.readTree(all.getResponse().getContentAsString()).path("items");
+    }
+
+    private JsonNode readWhere(String tenantId, String where, String versionHeader, long version) throws Exception {
+        MvcResult response = performRead(get("/v1/tenants/{tenantId}/dictionaries/COUNTRY/items", tenantId)
+                .param("where", where)
+                .header(versionHeader, version));
+        assertThat(response.getResponse().getStatus()).isEqualTo(200);
+        return objectMapper.readTree(response.getResponse().getContentAsString()).path("items");
+    }
+
+    private MvcResult performRead(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result;
+    }
+
+    private long waitCommitted(String tenantId, String eventId) throws Exception {
         for (int i = 0; i < 100; i++) {
             MvcResult response = mockMvc.perform(get("/v1/tenants/{tenantId}/updates/{eventId}", tenantId, eventId))
                     .andExpect(status().isOk())
@@ -140,7 +385,7 @@ class RefdataPlatformApplicationTests {
             JsonNode json = objectMapper.readTree(response.getResponse().getContentAsString());
             String status = json.path("status").asText();
             if ("COMMITTED".equals(status)) {
-                return;
+                return json.path("committedVersion").asLong();
             }
             if ("FAILED".equals(status)) {
                 throw new IllegalStateException("Update failed: " + json);
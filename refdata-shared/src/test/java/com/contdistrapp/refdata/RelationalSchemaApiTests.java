@@ -5,22 +5,27 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+@ActiveProfiles("test")
 @SpringBootTest
 @AutoConfigureMockMvc
 class RelationalSchemaApiTests {
@@ -38,6 +43,9 @@ class RelationalSchemaApiTests {
     @Autowired
     private RelationalTestDataSeeder seeder;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @BeforeEach
     void setUp() {
         seeder.recreateAndSeed(TENANT, SEED_ROWS);
@@ -84,6 +92,8 @@ class RelationalSchemaApiTests {
         JsonNode afterUpdateItem = fetchItemPayload(TENANT, DICT_CODE, key, updateVersion);
         assertThat(afterUpdateItem).isEqualTo(updatePayload);
         assertThat(afterUpdateItem).isNotEqualTo(beforeUpdateItem);
+        assertThat(fetchItemPayload(TENANT, DICT_CODE, "0" + key, updateVersion)).isEqualTo(updatePayload);
+        assertThat(fetchItemPayload(TENANT, DICT_CODE, "task-" + key, null).isNull()).isTrue();
 
         JsonNode beforeDeleteItem = fetchItemPayload(TENANT, DICT_CODE, key, updateVersion);
         int beforeDeleteCount = fetchAllCount(TENANT, DICT_CODE, updateVersion);
@@ -98,15 +108,61 @@ class RelationalSchemaApiTests {
         assertThat(afterDeleteCount).isEqualTo(SEED_ROWS);
     }
 
+    @Test
+    void at22_columnarDictionaryRebuildsRowsFromSchemaColumns() throws Exception {
+        JsonNode expected = objectMapper.readTree("""
+                {"code":"P000007","title":"Project 7","orgUnitId":7,"leadEmployeeId":7,"budget":100700.0,
+                 "startDate":"2025-01-08","status":"N","priority":3,"active":true}
+                """);
+
+        assertThat(fetchItemPayload(TENANT, "REL_PROJECT", "7", null)).isEqualTo(expected);
+        assertThat(fetchAllCount(TENANT, "REL_PROJECT", null)).isEqualTo(SEED_ROWS);
+    }
+
+    @Test
+    void at23_sortedKeyIndexServesPrefixAndRangeScans() throws Exception {
+        JsonNode prefixed = fetchRange("prefix=U000001");
+        assertThat(prefixed.path("items").size()).isEqualTo(10);
+        assertThat(prefixed.path("items").fieldNames().next()).isEqualTo("U0000010");
+        assertThat(prefixed.path("nextFrom").isNull()).isTrue();
+
+        JsonNode limited = fetchRange("from=U0000990&to=U0001000&limit=5");
+        assertThat(limited.path("items").size()).isEqualTo(5);
+        assertThat(limited.path("items").path("U0000994").path("name").asText()).isEqualTo("Org Unit 994");
+        assertThat(limited.path("nextFrom").asText()).isEqualTo("U0000995");
+
+        MvcResult unsorted = performRead(get("/v1/tenants/{tenantId}/dictionaries/REL_PROJECT/range", TENANT)
+                .param("prefix", "1"));
+        assertThat(unsorted.getResponse().getStatus()).isEqualTo(400);
+    }
+
+    @Test
+    void at24_memoizedBodiesAreChargedToTheMemoryBudget() throws Exception {
+        performRead(get("/v1/tenants/{tenantId}/dictionaries/REL_ORG_UNIT/version", TENANT));
+        double before = residentBytes();
+
+        MvcResult all = performRead(get("/v1/tenants/{tenantId}/dictionaries/REL_ORG_UNIT/all", TENANT));
+        assertThat(all.getResponse().getStatus()).isEqualTo(200);
+        assertThat(residentBytes() - before).isGreaterThanOrEqualTo(all.getResponse().getContentAsByteArray().length);
+    }
+
+    private double residentBytes() {
+        return meterRegistry.get("refdata.cache.resident.bytes").gauge().value();
+    }
+
+    private JsonNode fetchRange(String query) throws Exception {
+        MvcResult response = performRead(get("/v1/tenants/" + TENANT + "/dictionaries/REL_ORG_UNIT/range?" + query));
+        assertThat(response.getResponse().getStatus()).isEqualTo(200);
+        return objectMapper.readTree(response.getResponse().getContentAsString());
+    }
+
     private JsonNode fetchItemPayload(String tenantId, String dictCode, String key, Long minVersion) throws Exception {
         var request = get("/v1/tenants/{tenantId}/dictionaries/{dictCode}/items/{key}", tenantId, dictCode, key);
         if (minVersion != null) {
             request.header("X-Min-Version", minVersion);
         }
-        MvcResult response = mockMvc.perform(request)
-                .andExpect(result ->
-                        assertThat(result.getResponse().getStatus()).isIn(200, 404))
-                .andReturn();
+        MvcResult response = performRead(request);
+        assertThat(response.getResponse().getStatus()).isIn(200, 404);
         if (response.getResponse().getStatus() == 404) {
             return objectMapper.nullNode();
         }
@@ -119,9 +175,8 @@ class RelationalSchemaApiTests {
         if (minVersion != null) {
             request.header("X-Min-Version", minVersion);
         }
-        MvcResult response = mockMvc.perform(request)
-                .andExpect(status().isOk())
-                .andReturn();
+        MvcResult response = performRead(request);
+        assertThat(response.getResponse().getStatus()).isEqualTo(200);
         JsonNode body = objectMapper.readTree(response.getResponse().getContentAsString());
         return body.path("items").size();
     }
@@ -163,6 +218,14 @@ class RelationalSchemaApiTests {
         return waitCommitted(tenantId, eventId);
     }
 
+    private MvcResult performRead(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result;
+    }
+
     private long waitCommitted(String tenantId, String eventId) throws Exception {
         for (int i = 0; i < 150; i++) {
             MvcResult statusResponse = mockMvc.perform(get("/v1/tenants/{tenantId}/updates/{eventId}", tenantId, eventId))
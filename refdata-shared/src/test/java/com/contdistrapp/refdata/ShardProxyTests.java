@@ -0,0 +1,97 @@
+package com.contdistrapp.refdata;
+
+import com.contdistrapp.refdata.service.TenantOwnership;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class ShardProxyTests {
+
+    private static final String SELF = "http://query-a:8080";
+    private static final String OWNER_BODY = "{\"key\":\"FR\",\"version\":3}";
+    private static final BlockingQueue<Headers> ownerRequests = new LinkedBlockingQueue<>();
+
+    private static HttpServer owner;
+    private static String ownerUrl;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TenantOwnership tenantOwnership;
+
+    @DynamicPropertySource
+    static void sharding(DynamicPropertyRegistry registry) throws IOException {
+        owner = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        owner.createContext("/", exchange -> {
+            ownerRequests.add(exchange.getRequestHeaders());
+            byte[] body = OWNER_BODY.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.getResponseHeaders().add("X-Dict-Version", "3");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        owner.start();
+        ownerUrl = "http://127.0.0.1:" + owner.getAddress().getPort();
+
+        registry.add("refdata.sharding.enabled", () -> "true");
+        registry.add("refdata.sharding.self-url", () -> SELF);
+        registry.add("refdata.sharding.members", () -> SELF + "," + ownerUrl);
+        registry.add("refdata.sharding.routing", () -> "PROXY");
+    }
+
+    @AfterAll
+    static void stopOwner() {
+        owner.stop(0);
+    }
+
+    @Test
+    void at32_proxiedReadCarriesVersionHeadersToTheOwner() throws Exception {
+        String foreign = IntStream.range(0, 1000)
+                .mapToObj(i -> "tenant-proxy-" + i)
+                .filter(tenantId -> !tenantOwnership.owns(tenantId))
+                .findFirst()
+                .orElseThrow();
+
+        mockMvc.perform(get("/v1/tenants/{tenantId}/dictionaries/COUNTRY/items/FR", foreign)
+                        .header("X-Exact-Version", "3")
+                        .header("X-Min-Version", "2"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Refdata-Owner", ownerUrl))
+                .andExpect(header().string("X-Dict-Version", "3"))
+                .andExpect(content().string(OWNER_BODY));
+
+        Headers forwarded = ownerRequests.poll(5, TimeUnit.SECONDS);
+        assertThat(forwarded).isNotNull();
+        assertThat(forwarded.getFirst("X-Exact-Version")).isEqualTo("3");
+        assertThat(forwarded.getFirst("X-Min-Version")).isEqualTo("2");
+        assertThat(forwarded.getFirst("X-Refdata-Forwarded-By")).isEqualTo(SELF);
+    }
+}
@@ -0,0 +1,71 @@
+package com.contdistrapp.refdata;
+
+import com.contdistrapp.refdata.service.TenantOwnership;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class ShardRoutingTests {
+
+    private static final String SELF = "http://query-a:8080";
+    private static final String PEER = "http://query-b:8080";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TenantOwnership tenantOwnership;
+
+    @DynamicPropertySource
+    static void sharding(DynamicPropertyRegistry registry) {
+        registry.add("refdata.sharding.enabled", () -> "true");
+        registry.add("refdata.sharding.self-url", () -> SELF);
+        registry.add("refdata.sharding.members", () -> SELF + "," + PEER + "/");
+        registry.add("refdata.sharding.routing", () -> "REDIRECT");
+    }
+
+    @Test
+    void at31_foreignTenantIsRedirectedToItsOwnerAndOwnedTenantIsServedLocally() throws Exception {
+        String owned = tenant(true);
+        String foreign = tenant(false);
+        assertThat(tenantOwnership.remoteOwner(foreign)).contains(PEER);
+
+        mockMvc.perform(get("/v1/tenants/{tenantId}/dictionaries/COUNTRY/version", owned))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("X-Refdata-Owner"));
+
+        mockMvc.perform(get("/v1/tenants/{tenantId}/dictionaries/COUNTRY/items?keys=FR", foreign))
+                .andExpect(status().isTemporaryRedirect())
+                .andExpect(header().string("X-Refdata-Owner", PEER))
+                .andExpect(header().string("Location",
+                        PEER + "/v1/tenants/" + foreign + "/dictionaries/COUNTRY/items?keys=FR"));
+
+        // A request the owner's peer already forwarded is never routed again.
+        mockMvc.perform(get("/v1/tenants/{tenantId}/dictionaries/COUNTRY/version", foreign)
+                        .header("X-Refdata-Forwarded-By", PEER))
+                .andExpect(status().isOk());
+    }
+
+    private String tenant(boolean owned) {
+        return IntStream.range(0, 1000)
+                .mapToObj(i -> "tenant-shard-" + i)
+                .filter(tenantId -> tenantOwnership.owns(tenantId) == owned)
+                .findFirst()
+                .orElseThrow();
+    }
+}
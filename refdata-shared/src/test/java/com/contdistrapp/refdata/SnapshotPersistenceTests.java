@@ -0,0 +1,124 @@
+package com.contdistrapp.refdata;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ActiveProfiles("test")
+@SpringBootTest
+@AutoConfigureMockMvc
+class SnapshotPersistenceTests {
+
+    private static final Path SNAPSHOT_DIR = createTempDirectory();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void persistence(DynamicPropertyRegistry registry) {
+        registry.add("refdata.cache.persistence.enabled", () -> "true");
+        registry.add("refdata.cache.persistence.directory", SNAPSHOT_DIR::toString);
+        registry.add("refdata.cache.persistence.write-delay-ms", () -> "0");
+    }
+
+    @Test
+    void at30_coldBucketIsRestoredFromPersistedFileAndThenCatchesUp() throws Exception {
+        MvcResult update = mockMvc.perform(post("/v1/tenants/tenant-persist-a/updates")
+                        .param("consistencyMode", "WAIT_COMMIT")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {
+                                  "dictCode": "COUNTRY",
+                                  "eventType": "DELTA",
+                                  "items": [{"key":"FR","op":"UPSERT","payload":{"name":"France"}}]
+                                }
+                                """))
+                .andExpect(status().isOk())
+                .andReturn();
+        long version = objectMapper.readTree(update.getResponse().getContentAsString()).path("committedVersion").asLong();
+        assertThat(readAll("tenant-persist-a", version).path("items").has("FR")).isTrue();
+
+        Path persisted = SNAPSHOT_DIR.resolve("tenant-persist-a").resolve("COUNTRY.snapshot");
+        for (int i = 0; i < 100 && !Files.exists(persisted); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(persisted).exists();
+
+        // Same version committed for another tenant without any rows: only the file can provide FR.
+        Path restored = SNAPSHOT_DIR.resolve("tenant-persist-b").resolve("COUNTRY.snapshot");
+        Files.createDirectories(restored.getParent());
+        Files.copy(persisted, restored);
+        setCommittedVersion("tenant-persist-b", version);
+
+        MvcResult read = performRead(get("/v1/tenants/tenant-persist-b/dictionaries/COUNTRY/all"));
+        assertThat(read.getResponse().getHeader("X-Dict-Version")).isEqualTo(Long.toString(version));
+        assertThat(objectMapper.readTree(read.getResponse().getContentAsString())
+                .path("items").path("FR").path("name").asText()).isEqualTo("France");
+
+        setCommittedVersion("tenant-persist-b", version + 1);
+        assertThat(readAll("tenant-persist-b", version + 1).path("items").size()).isZero();
+    }
+
+    private JsonNode readAll(String tenantId, long minVersion) throws Exception {
+        MvcResult read = performRead(get("/v1/tenants/{tenantId}/dictionaries/COUNTRY/all", tenantId)
+                .header("X-Min-Version", minVersion));
+        assertThat(read.getResponse().getStatus()).isEqualTo(200);
+        return objectMapper.readTree(read.getResponse().getContentAsString());
+    }
+
+    private MvcResult performRead(MockHttpServletRequestBuilder request) throws Exception {
+        MvcResult result = mockMvc.perform(request).andReturn();
+        if (result.getRequest().isAsyncStarted()) {
+            return mockMvc.perform(asyncDispatch(result)).andReturn();
+        }
+        return result;
+    }
+
+    private void setCommittedVersion(String tenantId, long version) {
+        int updated = jdbcTemplate.update(
+                "update dictionary_meta set version = ? where tenant_id = ? and dict_code = 'COUNTRY'",
+                version, tenantId);
+        if (updated == 0) {
+            jdbcTemplate.update("""
+                    insert into dictionary_meta(tenant_id, dict_code, version, last_source_revision, updated_at)
+                    values (?, 'COUNTRY', ?, null, CURRENT_TIMESTAMP)
+                    """, tenantId, version);
+        }
+    }
+
+    private static Path createTempDirectory() {
+        try {
+            return Files.createTempDirectory("refdata-snapshots");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
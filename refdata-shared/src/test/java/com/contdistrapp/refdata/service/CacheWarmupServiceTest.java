@@ -0,0 +1,67 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.persistence.DictionaryVersionRecord;
+import com.contdistrapp.refdata.persistence.PlatformRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheWarmupServiceTest {
+
+    @Test
+    void listingAndLoadFailuresAreRetriedUntilTheTargetIsResident() throws Exception {
+        PlatformRepository repository = mock(PlatformRepository.class);
+        DictionaryRegistry dictionaryRegistry = mock(DictionaryRegistry.class);
+        TenantOwnership tenantOwnership = mock(TenantOwnership.class);
+        QueryService queryService = mock(QueryService.class);
+        RefDataProperties properties = new RefDataProperties();
+        properties.getCache().getWarmup().setEnabled(true);
+        properties.getCache().getWarmup().setReadyFraction(1.0);
+        properties.getCache().getWarmup().setRetryInitialMs(10);
+        properties.getCache().getWarmup().setRetryMaxMs(20);
+
+        AtomicBoolean resident = new AtomicBoolean();
+        when(dictionaryRegistry.isConfigured("COUNTRY")).thenReturn(true);
+        when(tenantOwnership.owns("tenant-a")).thenReturn(true);
+        when(repository.findRecentDictionaryVersions(any(), anyInt()))
+                .thenThrow(new DataAccessResourceFailureException("database is starting"))
+                .thenReturn(List.of(new DictionaryVersionRecord("tenant-a", "COUNTRY", 3)));
+        when(queryService.warmUp("tenant-a", "COUNTRY"))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("load failed")))
+                .thenAnswer(invocation -> {
+                    resident.set(true);
+                    return CompletableFuture.completedFuture(true);
+                });
+        when(queryService.isResident("tenant-a", "COUNTRY")).thenAnswer(invocation -> resident.get());
+
+        CacheWarmupService warmup = new CacheWarmupService(
+                repository, dictionaryRegistry, queryService, tenantOwnership, properties);
+        try {
+            warmup.warmUp();
+            assertThat(warmup.isReady()).isFalse();
+
+            for (int i = 0; i < 250 && !warmup.isReady(); i++) {
+                Thread.sleep(20);
+            }
+            assertThat(warmup.isReady()).isTrue();
+            assertThat(warmup.loaded()).isEqualTo(1);
+            assertThat(warmup.retrying()).isZero();
+            verify(repository, times(2)).findRecentDictionaryVersions(any(), anyInt());
+            verify(queryService, times(2)).warmUp("tenant-a", "COUNTRY");
+        } finally {
+            warmup.shutdown();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.domain.FieldType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ColumnarItemsTest {
+
+    private static final List<RefDataProperties.SchemaField> SCHEMA = List.of(
+            field("name", FieldType.STRING),
+            field("size", FieldType.LONG),
+            field("rate", FieldType.DOUBLE),
+            field("active", FieldType.BOOLEAN));
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void decodedRowsRebuildTheirPayloads() throws Exception {
+        Map<String, String> rows = new LinkedHashMap<>();
+        rows.put("b", "{\"name\":\"B\",\"size\":3000000000,\"rate\":0.5,\"active\":false}");
+        rows.put("a", "{\"name\":\"A\",\"size\":1,\"rate\":1.5,\"active\":true}");
+        rows.put("c", "{\"name\":null,\"size\":2,\"rate\":2.0,\"active\":null}");
+        rows.put("odd", "{\"name\":\"extra\",\"size\":1,\"rate\":1.0,\"active\":true,\"note\":\"x\"}");
+        rows.put("typed", "{\"name\":\"T\",\"size\":\"1\",\"rate\":1.0,\"active\":true}");
+
+        ColumnarItems items = decode(rows);
+
+        assertThat(items).isEqualTo(trees(rows));
+        assertThat(items.keySet()).containsExactlyInAnyOrder("a", "b", "c", "odd", "typed");
+        assertThat(items.get("missing")).isNull();
+        assertThat(items.get("b").get("size").isLong()).isTrue();
+        assertThat(items.get("a").get("size").isInt()).isTrue();
+    }
+
+    @Test
+    void patchedReplacesRemovesAndInsertsRowsInKeyOrder() throws Exception {
+        Map<String, String> rows = new HashMap<>();
+        for (int i = 0; i < 20; i++) {
+            rows.put(String.format("k%02d", i), row("n" + i, i));
+        }
+        rows.put("odd", "[1,2]");
+        ColumnarItems items = decode(rows);
+        Map<String, JsonNode> before = trees(rows);
+
+        Map<String, String> loaded = Map.of(
+                "k03", row("replaced", 300),
+                "k05", "{\"name\":\"now odd\"}",
+                "k07a", row("inserted", 7),
+                "a", row("first", -1),
+                "odd", row("now conforming", 42));
+        Set<String> changed = Set.of("k03", "k05", "k07a", "a", "odd", "k10", "absent");
+
+        ColumnarItems patched = items.patched(changed, trees(loaded));
+
+        Map<String, JsonNode> expected = new HashMap<>(before);
+        expected.remove("k10");
+        expected.putAll(trees(loaded));
+        assertThat(patched).hasSize(expected.size()).isEqualTo(expected);
+        assertThat(patched.containsKey("k10")).isFalse();
+        assertThat(patched.get("k05")).isEqualTo(objectMapper.readTree("{\"name\":\"now odd\"}"));
+        assertThat(items).isEqualTo(before);
+    }
+
+    @Test
+    void streamedRowsInAnyOrderKeepTheLastRowOfEachKey() throws Exception {
+        ItemsBuilder<JsonNode> builder = ColumnarItems.builder(SCHEMA);
+        Map<String, JsonNode> expected = new HashMap<>();
+        for (int i = 2_999; i >= 0; i--) {
+            String key = String.format("k%04d", (i * 7) % 3_000);
+            builder.put(key, objectMapper.readTree(row("n" + i, i)));
+            expected.put(key, objectMapper.readTree(row("n" + i, i)));
+        }
+        builder.put("k0001", objectMapper.readTree(row("replaced", 1)));
+        expected.put("k0001", objectMapper.readTree(row("replaced", 1)));
+        builder.put("k0002", objectMapper.readTree("[2]"));
+        expected.put("k0002", objectMapper.readTree("[2]"));
+        builder.put("odd", objectMapper.readTree("[1]"));
+        builder.put("odd", objectMapper.readTree(row("conforming", 5)));
+        expected.put("odd", objectMapper.readTree(row("conforming", 5)));
+
+        Map<String, JsonNode> items = builder.build();
+        assertThat(items).isInstanceOf(ColumnarItems.class).hasSize(expected.size()).isEqualTo(expected);
+        assertThat(List.copyOf(items.keySet()).subList(0, 3)).containsExactly("k0000", "k0001", "k0003");
+    }
+
+    private ColumnarItems decode(Map<String, String> rows) {
+        Map<String, byte[]> raw = new HashMap<>();
+        rows.forEach((key, json) -> raw.put(key, json.getBytes(StandardCharsets.UTF_8)));
+        return ColumnarItems.decode(SCHEMA, raw, objectMapper);
+    }
+
+    private Map<String, JsonNode> trees(Map<String, String> rows) throws Exception {
+        Map<String, JsonNode> trees = new HashMap<>();
+        for (Map.Entry<String, String> entry : rows.entrySet()) {
+            trees.put(entry.getKey(), objectMapper.readTree(entry.getValue()));
+        }
+        return trees;
+    }
+
+    private static String row(String name, long size) {
+        return "{\"name\":\"" + name + "\",\"size\":" + size + ",\"rate\":" + size / 4.0 + ",\"active\":"
+                + (size % 2 == 0) + "}";
+    }
+
+    private static RefDataProperties.SchemaField field(String name, FieldType type) {
+        RefDataProperties.SchemaField field = new RefDataProperties.SchemaField();
+        field.setName(name);
+        field.setType(type);
+        return field;
+    }
+}
@@ -0,0 +1,69 @@
+package com.contdistrapp.refdata.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConsistentHashRingTest {
+
+    private static final int TENANTS = 20_000;
+    private static final int VIRTUAL_NODES = 128;
+    private static final List<String> MEMBERS =
+            List.of("http://query-a:8080", "http://query-b:8080", "http://query-c:8080", "http://query-d:8080");
+
+    @Test
+    void tenantsAreSpreadEvenlyOverMembers() {
+        ConsistentHashRing ring = ConsistentHashRing.of(MEMBERS, VIRTUAL_NODES);
+
+        Map<String, Integer> owned = new HashMap<>();
+        for (int i = 0; i < TENANTS; i++) {
+            owned.merge(ring.owner("tenant-" + i), 1, Integer::sum);
+        }
+
+        assertThat(owned).containsOnlyKeys(MEMBERS);
+        double fairShare = (double) TENANTS / MEMBERS.size();
+        assertThat(owned.values()).allSatisfy(count ->
+                assertThat(count).isBetween((int) (fairShare * 0.75), (int) (fairShare * 1.25)));
+    }
+
+    @Test
+    void addingOrRemovingAMemberMovesOnlyItsShare() {
+        ConsistentHashRing ring = ConsistentHashRing.of(MEMBERS, VIRTUAL_NODES);
+        ConsistentHashRing grown = ConsistentHashRing.of(
+                List.of("http://query-e:8080", "http://query-d:8080", "http://query-c:8080",
+                        "http://query-b:8080", "http://query-a:8080"),
+                VIRTUAL_NODES);
+        ConsistentHashRing shrunk = ConsistentHashRing.of(MEMBERS.subList(1, MEMBERS.size()), VIRTUAL_NODES);
+
+        int movedOnGrow = 0;
+        int movedOnShrink = 0;
+        for (int i = 0; i < TENANTS; i++) {
+            String tenant = "tenant-" + i;
+            String owner = ring.owner(tenant);
+            if (!owner.equals(grown.owner(tenant))) {
+                // Keys only move to the new member.
+                assertThat(grown.owner(tenant)).isEqualTo("http://query-e:8080");
+                movedOnGrow++;
+            }
+            if (!owner.equals(shrunk.owner(tenant))) {
+                // Only keys of the removed member move.
+                assertThat(owner).isEqualTo(MEMBERS.get(0));
+                movedOnShrink++;
+            }
+        }
+        assertThat(movedOnGrow).isBetween((int) (TENANTS / 5 * 0.75), (int) (TENANTS / 5 * 1.25));
+        assertThat(movedOnShrink).isBetween((int) (TENANTS / 4 * 0.75), (int) (TENANTS / 4 * 1.25));
+    }
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = ConsistentHashRing.of(List.of(), VIRTUAL_NODES);
+
+        assertThat(ring.owner("tenant-1")).isNull();
+        assertThat(ring.members()).isEmpty();
+    }
+}
@@ -0,0 +1,89 @@
+package com.contdistrapp.refdata.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongKeyMapTest {
+
+    @Test
+    void growingBuilderKeepsEveryProbedKey() {
+        LongKeyMap.Builder<String> builder = new LongKeyMap.Builder<>();
+        Map<String, String> expected = new HashMap<>();
+        // Multiples of a large power of two and negative keys crowd a few slots and force long probe runs.
+        for (long i = 0; i < 5_000; i++) {
+            long key = i % 2 == 0 ? i << 32 : -i;
+            builder.put(Long.toString(key), "v" + i);
+            expected.put(Long.toString(key), "v" + i);
+        }
+        builder.put("0", "replaced");
+        expected.put("0", "replaced");
+
+        LongKeyMap<String> map = builder.build();
+        assertThat(builder.size()).isEqualTo(5_000);
+        assertThat(map).hasSize(5_000).isEqualTo(expected);
+        assertThat(map.get(-4_999L)).isEqualTo("v4999");
+        assertThat(map.get(Long.MIN_VALUE)).isNull();
+        assertThatThrownBy(() -> builder.put("1", "late")).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void randomPatchesMatchHashMapAndLeaveEarlierVersionsIntact() {
+        Random random = new Random(7);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            expected.put(Integer.toString(i), i);
+        }
+        LongKeyMap<Integer> map = LongKeyMap.of(expected);
+
+        for (int round = 0; round < 30; round++) {
+            Map<String, Integer> before = new HashMap<>(expected);
+            LongKeyMap<Integer> previous = map;
+
+            Set<String> changed = new HashSet<>();
+            Map<String, Integer> loaded = new HashMap<>();
+            for (int i = 0; i < 50; i++) {
+                String key = Integer.toString(random.nextInt(1_500));
+                changed.add(key);
+                if (random.nextBoolean()) {
+                    loaded.put(key, random.nextInt());
+                    expected.put(key, loaded.get(key));
+                } else {
+                    loaded.remove(key);
+                    expected.remove(key);
+                }
+            }
+
+            map = map.patched(changed, loaded);
+            assertThat(map).hasSize(expected.size()).isEqualTo(expected);
+            assertThat(previous).isEqualTo(before);
+        }
+        assertThat(map.patched(Set.copyOf(map.keySet()), Map.of())).isEmpty();
+    }
+
+    @Test
+    void nonNumericKeysAreRejectedOnWriteAndMissOnRead() {
+        LongKeyMap<String> map = LongKeyMap.of(Map.of("7", "seven"));
+
+        assertThat(map.get("7")).isEqualTo("seven");
+        assertThat(map.get("007")).isNull();
+        assertThat(map.get("+7")).isNull();
+        assertThat(map.get("task-7")).isNull();
+        assertThat(map.containsKey("7.0")).isFalse();
+        assertThat(map.keySet().contains("")).isFalse();
+        assertThatThrownBy(() -> LongKeyMap.of(Map.of("task-7", "x")))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("task-7");
+        assertThatThrownBy(() -> map.patched(Set.of("task-7"), Map.of()))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> new LongKeyMap.Builder<String>().put("99999999999999999999", "x"))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
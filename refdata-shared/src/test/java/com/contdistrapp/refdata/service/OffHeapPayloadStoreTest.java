@@ -0,0 +1,111 @@
+package com.contdistrapp.refdata.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OffHeapPayloadStoreTest {
+
+    @Test
+    void patchAcrossSegmentsKeepsRecordsAndTheirEtags() {
+        Map<String, String> expected = new LinkedHashMap<>();
+        List<ByteBuffer> segments = new ArrayList<>();
+        // Three segments as a mapped snapshot file lays them out after a rollover.
+        for (int segment = 0; segment < 3; segment++) {
+            Map<String, String> records = new LinkedHashMap<>();
+            for (int i = 0; i < 4; i++) {
+                records.put("key-" + segment + "-" + i, "{\"n\":" + (segment * 10 + i) + "}");
+            }
+            segments.add(segment(records));
+            expected.putAll(records);
+        }
+        OffHeapPayloadStore store = OffHeapPayloadStore.indexed(segments, expected.size());
+        assertThat(contents(store)).isEqualTo(expected);
+
+        Map<String, byte[]> loaded = Map.of(
+                "key-1-2", bytes("{\"n\":\"replaced\"}"),
+                "ключ-новый", bytes("{\"n\":\"added\"}"));
+        PayloadStore patched = store.patched(Set.of("key-0-0", "key-1-2", "key-2-3", "ключ-новый"), loaded);
+
+        expected.remove("key-0-0");
+        expected.remove("key-2-3");
+        expected.put("key-1-2", "{\"n\":\"replaced\"}");
+        expected.put("ключ-новый", "{\"n\":\"added\"}");
+        assertThat(contents(patched)).isEqualTo(expected);
+        assertThat(patched.containsKey("key-0-0")).isFalse();
+        assertThat(patched.keys()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+        expected.forEach((key, json) -> assertThat(((OffHeapPayloadStore) patched).etag(key)).isEqualTo(etag(json)));
+        assertThat(((OffHeapPayloadStore) patched).etag("key-0-0")).isNull();
+        assertThat(store.payload("key-0-0")).isNotNull();
+    }
+
+    @Test
+    void patchAppendsOnlyLoadedRecordsAndCompactsOnceDeadRecordsDominate() {
+        Map<String, byte[]> items = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            items.put("key-" + i, bytes("{\"n\":" + i + "}"));
+        }
+        OffHeapPayloadStore store = OffHeapPayloadStore.of(items);
+        assertThat(store.regionBytes()).isEqualTo(store.liveBytes());
+
+        byte[] added = bytes("{}");
+        String addedKey = "a-much-longer-key-than-any-other-one";
+        OffHeapPayloadStore patched = (OffHeapPayloadStore) store.patched(Set.of(addedKey), Map.of(addedKey, added));
+        assertThat(patched.regionBytes()).isEqualTo(store.regionBytes() + bytes(addedKey).length + added.length);
+        assertThat(store.bytesNotSharedWith(patched)).isEqualTo(store.estimatedBytes() - store.regionBytes());
+
+        OffHeapPayloadStore current = patched;
+        boolean compacted = false;
+        for (int round = 0; round < 200; round++) {
+            OffHeapPayloadStore next = (OffHeapPayloadStore) current.patched(
+                    Set.of("key-1"), Map.of("key-1", bytes("{\"n\":\"round " + round + "\"}")));
+            compacted |= next.regionBytes() == next.liveBytes() && current.regionBytes() > current.liveBytes();
+            assertThat(next.regionBytes()).isLessThanOrEqualTo(2 * next.liveBytes());
+            current = next;
+        }
+        assertThat(compacted).isTrue();
+        assertThat(StandardCharsets.UTF_8.decode(current.payload("key-1")).toString()).isEqualTo("{\"n\":\"round 199\"}");
+        assertThat(current.size()).isEqualTo(101);
+        assertThat(StandardCharsets.UTF_8.decode(store.payload("key-1")).toString()).isEqualTo("{\"n\":1}");
+    }
+
+    private static ByteBuffer segment(Map<String, String> records) {
+        int bytes = 0;
+        for (Map.Entry<String, String> record : records.entrySet()) {
+            bytes += 8 + bytes(record.getKey()).length + bytes(record.getValue()).length;
+        }
+        ByteBuffer segment = ByteBuffer.allocateDirect(bytes);
+        records.forEach((key, payload) -> segment
+                .putInt(bytes(key).length)
+                .putInt(bytes(payload).length)
+                .put(bytes(key))
+                .put(bytes(payload)));
+        return segment.flip();
+    }
+
+    private static Map<String, String> contents(PayloadStore store) {
+        Map<String, String> contents = new HashMap<>();
+        store.forEach((key, payload) -> contents.put(key, StandardCharsets.UTF_8.decode(payload).toString()));
+        assertThat(contents).hasSize(store.size());
+        return contents;
+    }
+
+    private static String etag(String json) {
+        byte[] digest = CacheSnapshot.EncodedPayload.sha256().digest(bytes(json));
+        return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
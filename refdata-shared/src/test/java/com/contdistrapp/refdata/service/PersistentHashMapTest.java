@@ -0,0 +1,98 @@
+package com.contdistrapp.refdata.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PersistentHashMapTest {
+
+    // "Aa" and "BB" share String.hashCode(), so do all their concatenations of equal length.
+    private static final List<String> COLLIDING = List.of("AaAa", "AaBB", "BBAa", "BBBB");
+
+    @Test
+    void collidingKeysArePatchedAndRemovedDownToEmpty() {
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < COLLIDING.size(); i++) {
+            expected.put(COLLIDING.get(i), i);
+        }
+        PersistentHashMap<Integer> map = PersistentHashMap.of(expected);
+        assertThat(map).isEqualTo(expected);
+
+        PersistentHashMap<Integer> updated = map.patched(Set.of("AaBB", "Aa"), Map.of("AaBB", 10, "Aa", 11));
+        assertThat(updated).containsEntry("AaBB", 10).containsEntry("Aa", 11).hasSize(5);
+        assertThat(map).containsEntry("AaBB", 1).doesNotContainKey("Aa").hasSize(4);
+
+        PersistentHashMap<Integer> current = updated;
+        Set<String> remaining = new HashSet<>(updated.keySet());
+        for (String key : List.copyOf(remaining)) {
+            current = current.patched(Set.of(key), Map.of());
+            remaining.remove(key);
+            assertThat(current.keySet()).isEqualTo(remaining);
+            assertThat(current.get(key)).isNull();
+        }
+        assertThat(current).isEmpty();
+        assertThat(current.patched(Set.of("BBBB"), Map.of("BBBB", 3))).isEqualTo(Map.of("BBBB", 3));
+        assertThat(updated).hasSize(5);
+    }
+
+    @Test
+    void randomPatchesMatchHashMapAndLeaveEarlierVersionsIntact() {
+        Random random = new Random(42);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 2_000; i++) {
+            expected.put("key-" + i, i);
+        }
+        PersistentHashMap<Integer> map = PersistentHashMap.of(expected);
+
+        for (int round = 0; round < 50; round++) {
+            Map<String, Integer> before = new HashMap<>(expected);
+            PersistentHashMap<Integer> previous = map;
+
+            Set<String> changed = new HashSet<>();
+            Map<String, Integer> loaded = new HashMap<>();
+            for (int i = 0; i < 100; i++) {
+                String key = random.nextInt(4) == 0
+                        ? COLLIDING.get(random.nextInt(COLLIDING.size()))
+                        : "key-" + random.nextInt(3_000);
+                changed.add(key);
+                if (random.nextBoolean()) {
+                    loaded.put(key, random.nextInt());
+                } else {
+                    loaded.remove(key);
+                }
+            }
+            for (String key : changed) {
+                if (loaded.containsKey(key)) {
+                    expected.put(key, loaded.get(key));
+                } else {
+                    expected.remove(key);
+                }
+            }
+
+            map = map.patched(changed, loaded);
+            assertThat(map).hasSize(expected.size()).isEqualTo(expected);
+            assertThat(previous).isEqualTo(before);
+        }
+    }
+
+    @Test
+    void builderRejectsPutsAfterBuild() {
+        PersistentHashMap.Builder<String> builder = new PersistentHashMap.Builder<>();
+        builder.put("Aa", "first");
+        builder.put("BB", "second");
+        builder.put("Aa", "replaced");
+        PersistentHashMap<String> map = builder.build();
+
+        assertThat(map).isEqualTo(Map.of("Aa", "replaced", "BB", "second"));
+        assertThatThrownBy(() -> builder.put("CC", "late")).isInstanceOf(IllegalStateException.class);
+        assertThat(map).hasSize(2);
+    }
+}
@@ -0,0 +1,199 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.contdistrapp.refdata.persistence.DictionarySnapshotRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedisSharedSnapshotCacheTest {
+
+    private static final String KEY = "refdata:snap:tenant-a:COUNTRY:";
+
+    /** Redis strings and locks by key, shared by every cache instance of a test like by pods of one cluster. */
+    private final Map<String, byte[]> redis = new ConcurrentHashMap<>();
+    private final Map<String, String> locks = new ConcurrentHashMap<>();
+
+    @Test
+    void lockWinnerLoadsOnceAndWaitersReadTheSharedEntry() {
+        RedisSharedSnapshotCache winner = cache(64 * 1024);
+        RedisSharedSnapshotCache waiter = cache(64 * 1024);
+        AtomicInteger loads = new AtomicInteger();
+
+        DictionarySnapshotRecord<byte[]> loaded = winner.load("tenant-a", "COUNTRY", 3, () -> {
+            loads.incrementAndGet();
+            // The lock is held while the winner reads PostgreSQL.
+            assertThat(waiter.load("tenant-a", "COUNTRY", 3, counting(loads))).isNull();
+            return snapshot(3, "A", "{\"name\":\"a\"}");
+        });
+
+        assertThat(loads).hasValue(1);
+        assertThat(payload(loaded, "A")).isEqualTo("{\"name\":\"a\"}");
+        assertThat(redis).containsOnlyKeys(KEY + 3);
+        DictionarySnapshotRecord<byte[]> shared = waiter.await("tenant-a", "COUNTRY", 3);
+        assertThat(shared.version()).isEqualTo(3);
+        assertThat(payload(shared, "A")).isEqualTo("{\"name\":\"a\"}");
+        assertThat(payload(waiter.load("tenant-a", "COUNTRY", 3, counting(loads)), "A"))
+                .isEqualTo("{\"name\":\"a\"}");
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void oversizedSnapshotsAreNotPublished() {
+        RedisSharedSnapshotCache cache = cache(1024);
+        byte[] incompressible = new byte[256 * 1024];
+        new Random(7).nextBytes(incompressible);
+        AtomicInteger loads = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            DictionarySnapshotRecord<byte[]> loaded = cache.load("tenant-a", "COUNTRY", 3, () -> {
+                loads.incrementAndGet();
+                return new DictionarySnapshotRecord<>(3, Map.of("A", incompressible));
+            });
+            assertThat(loaded.items().get("A")).isSameAs(incompressible);
+        }
+
+        assertThat(redis).isEmpty();
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void corruptEntriesAndForeignMagicFallBackToTheLoader() throws Exception {
+        RedisSharedSnapshotCache cache = cache(64 * 1024);
+        redis.put(KEY + 3, "not gzip".getBytes(StandardCharsets.UTF_8));
+        redis.put(KEY + 4, gzip(0x12345678, 4));
+
+        assertThat(cache.await("tenant-a", "COUNTRY", 4)).isNull();
+        DictionarySnapshotRecord<byte[]> loaded = cache.load(
+                "tenant-a", "COUNTRY", 3, () -> snapshot(3, "A", "{\"name\":\"a\"}"));
+        assertThat(payload(loaded, "A")).isEqualTo("{\"name\":\"a\"}");
+        // The loader's result replaces the garbage.
+        assertThat(payload(cache.await("tenant-a", "COUNTRY", 3), "A")).isEqualTo("{\"name\":\"a\"}");
+    }
+
+    @Test
+    void newerVersionReadByTheLoadIsPublishedUnderBothKeys() {
+        RedisSharedSnapshotCache cache = cache(64 * 1024);
+
+        DictionarySnapshotRecord<byte[]> loaded = cache.load(
+                "tenant-a", "COUNTRY", 3, () -> snapshot(5, "A", "{\"name\":\"b\"}"));
+
+        assertThat(loaded.version()).isEqualTo(5);
+        assertThat(redis).containsOnlyKeys(KEY + 3, KEY + 5);
+        assertThat(cache.await("tenant-a", "COUNTRY", 3).version()).isEqualTo(5);
+        assertThat(payload(cache.await("tenant-a", "COUNTRY", 5), "A")).isEqualTo("{\"name\":\"b\"}");
+    }
+
+    @Test
+    void unreachableRedisLetsEveryPodLoad() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> values = mockValueOperations();
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(values.setIfAbsent(anyString(), anyString(), anyLong(), any()))
+                .thenThrow(new QueryTimeoutException("Redis is down"));
+        when(redisTemplate.execute(any(RedisCallback.class))).thenThrow(new QueryTimeoutException("Redis is down"));
+        RedisSharedSnapshotCache cache = cache(redisTemplate, 64 * 1024);
+
+        DictionarySnapshotRecord<byte[]> loaded = cache.load(
+                "tenant-a", "COUNTRY", 3, () -> snapshot(3, "A", "{\"name\":\"a\"}"));
+
+        assertThat(payload(loaded, "A")).isEqualTo("{\"name\":\"a\"}");
+    }
+
+    private RedisSharedSnapshotCache cache(int maxBytes) {
+        return cache(fakeRedis(), maxBytes);
+    }
+
+    private RedisSharedSnapshotCache cache(StringRedisTemplate redisTemplate, int maxBytes) {
+        RefDataProperties properties = new RefDataProperties();
+        RefDataProperties.Dictionary country = new RefDataProperties.Dictionary();
+        country.setCode("COUNTRY");
+        country.setLoadSql("select 1");
+        properties.getDictionaries().add(country);
+        properties.getRedis().setSnapshotMaxBytes(maxBytes);
+        properties.getRedis().setSnapshotWaitMs(200);
+        return new RedisSharedSnapshotCache(redisTemplate, new DictionaryRegistry(properties), properties);
+    }
+
+    @SuppressWarnings("unchecked")
+    private StringRedisTemplate fakeRedis() {
+        RedisStringCommands strings = mock(RedisStringCommands.class);
+        when(strings.get(any())).thenAnswer(invocation ->
+                redis.get(new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8)));
+        when(strings.set(any(), any(), any(), any())).thenAnswer(invocation -> {
+            redis.put(new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8), invocation.getArgument(1));
+            return true;
+        });
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.stringCommands()).thenReturn(strings);
+
+        ValueOperations<String, String> values = mockValueOperations();
+        when(values.setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenAnswer(invocation ->
+                locks.putIfAbsent(invocation.getArgument(0), invocation.getArgument(1)) == null);
+
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(redisTemplate.execute(any(RedisCallback.class))).thenAnswer(invocation ->
+                invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection));
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any())).thenAnswer(invocation -> {
+            String lockKey = invocation.<List<String>>getArgument(1).get(0);
+            return locks.remove(lockKey, invocation.getArgument(2)) ? 1L : 0L;
+        });
+        return redisTemplate;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ValueOperations<String, String> mockValueOperations() {
+        return mock(ValueOperations.class);
+    }
+
+    private static Supplier<DictionarySnapshotRecord<byte[]>> counting(AtomicInteger loads) {
+        return () -> {
+            loads.incrementAndGet();
+            return snapshot(3, "A", "{}");
+        };
+    }
+
+    private static DictionarySnapshotRecord<byte[]> snapshot(long version, String key, String json) {
+        return new DictionarySnapshotRecord<>(version, Map.of(key, json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String payload(DictionarySnapshotRecord<byte[]> snapshot, String key) {
+        return new String(snapshot.items().get(key), StandardCharsets.UTF_8);
+    }
+
+    private static byte[] gzip(int magic, long version) throws Exception {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(buffer))) {
+            out.writeInt(magic);
+            out.writeLong(version);
+            out.writeInt(0);
+        }
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,75 @@
+package com.contdistrapp.refdata.service;
+
+import com.contdistrapp.refdata.config.RefDataProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SnapshotFileStoreTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    private Path root;
+
+    @Test
+    void dotTenantsStayInsideTheSnapshotDirectory() throws Exception {
+        Path directory = Files.createDirectories(root.resolve("snapshots").resolve("pod"));
+        for (String tenantId : new String[] {"..", ".", ".hidden", "a/../b"}) {
+            persist(directory, tenantId, "{\"name\":\"" + tenantId + "\"}");
+        }
+
+        assertThat(root.resolve("snapshots").resolve("COUNTRY.snapshot")).doesNotExist();
+        assertThat(directory.resolve("COUNTRY.snapshot")).doesNotExist();
+        try (var tenants = Files.list(directory)) {
+            assertThat(tenants.map(tenant -> tenant.getFileName().toString()))
+                    .containsExactlyInAnyOrder("%2E%2E", "%2E", "%2Ehidden", "a%2F%2E%2E%2Fb");
+        }
+        Optional<SnapshotFileStore.PersistedSnapshot> restored = store(directory).read("..", "COUNTRY");
+        assertThat(restored).isPresent();
+        assertThat(payload(restored.get(), "A")).isEqualTo("{\"name\":\"..\"}");
+    }
+
+    @Test
+    void onlyCorruptFilesAreDeleted() throws Exception {
+        persist(root, "tenant-a", "{\"name\":\"a\"}");
+        Path file = root.resolve("tenant-a").resolve("COUNTRY.snapshot");
+        assertThat(store(root).read("tenant-a", "COUNTRY")).isPresent();
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertThat(store(root).read("tenant-a", "COUNTRY")).isEmpty();
+        assertThat(file).doesNotExist();
+    }
+
+    private void persist(Path directory, String tenantId, String json) throws Exception {
+        SnapshotFileStore store = store(directory);
+        store.persist(tenantId, "COUNTRY", new CacheSnapshot(1, Map.of("A", objectMapper.readTree(json))));
+        // Flushes the pending write.
+        store.shutdown();
+    }
+
+    private SnapshotFileStore store(Path directory) {
+        RefDataProperties properties = new RefDataProperties();
+        RefDataProperties.Persistence persistence = properties.getCache().getPersistence();
+        persistence.setEnabled(true);
+        persistence.setDirectory(directory.toString());
+        persistence.setWriteDelayMs(0);
+        return new SnapshotFileStore(properties, objectMapper);
+    }
+
+    private static String payload(SnapshotFileStore.PersistedSnapshot snapshot, String key) {
+        ByteBuffer payload = snapshot.payloads().payload(key);
+        return StandardCharsets.UTF_8.decode(payload).toString();
+    }
+}
@@ -35,6 +35,8 @@ public class RelationalTestDataSeeder {
         seedInvoices(tenantId, size);
         seedProjectDependencies(tenantId, size);
         ensureDictionaryVersion(tenantId, "REL_TASK", 1L);
+        ensureDictionaryVersion(tenantId, "REL_PROJECT", 1L);
+        ensureDictionaryVersion(tenantId, "REL_ORG_UNIT", 1L);
     }
 
     public Map<String, Integer> countByTable(String tenantId) {